@@ -33,6 +33,11 @@ definitions
 definition
     : graph
     | path
+    | include
+    ;
+
+include
+    : INCLUDE StringLiteral
     ;
 
 graph
@@ -77,7 +82,7 @@ properties
     ;
 
 property
-    : Identifier Colon (literal | listLiteral)
+    : Identifier Colon (literal | listLiteral | Parameter)
     ;
 
 label
@@ -112,6 +117,7 @@ comparisonElement
     : Identifier
     | propertyLookup
     | literal
+    | Parameter
     ;
 
 parenthesizedExpression : '(' expression ')' ;
@@ -245,6 +251,10 @@ CREATE
     : 'CREATE'
     ;
 
+INCLUDE
+    : 'INCLUDE'
+    ;
+
 NaN
     : 'NaN'
     ;
@@ -260,6 +270,14 @@ Identifier
     : (UnderScore | LowerCaseLetter | UpperCaseLetter) (UnderScore | Character)*   // e.g. _temp, _0, t_T, g0, alice, birthTown
     ;
 
+//-------------------------------
+// Parameter
+//-------------------------------
+
+Parameter
+    : '$' (UnderScore | LowerCaseLetter | UpperCaseLetter) (UnderScore | Character)*   // e.g. $name, $_since
+    ;
+
 Characters
     : Character+
     ;
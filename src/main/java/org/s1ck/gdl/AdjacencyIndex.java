@@ -0,0 +1,204 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl;
+
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Vertex;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable adjacency structure in compressed sparse row format.
+ *
+ * Vertices are numbered by their position in the sorted array of vertex identifiers. For each
+ * direction, the edges of vertex {@code i} are stored at the positions {@code offsets[i]} to
+ * {@code offsets[i + 1]} of a single array of edge positions, ordered by edge identifier. Lookups
+ * take O(log |V|) to find the vertex (O(1) if vertex identifiers are contiguous) and O(degree) to
+ * iterate its edges. The index reflects the elements at the time it was built.
+ */
+class AdjacencyIndex {
+  /**
+   * Sorted vertex identifiers.
+   */
+  private final long[] vertexIds;
+  /**
+   * True, iff the vertex identifiers are contiguous, i.e. the position of a vertex is its
+   * identifier minus the smallest identifier.
+   */
+  private final boolean contiguous;
+  /**
+   * Edges ordered by their identifiers.
+   */
+  private final Edge[] edges;
+  /**
+   * Start of the outgoing edges of each vertex in {@link #outgoingEdges}.
+   */
+  private final int[] outgoingOffsets;
+  /**
+   * Positions of outgoing edges grouped by source vertex.
+   */
+  private final int[] outgoingEdges;
+  /**
+   * Start of the incoming edges of each vertex in {@link #incomingEdges}.
+   */
+  private final int[] incomingOffsets;
+  /**
+   * Positions of incoming edges grouped by target vertex.
+   */
+  private final int[] incomingEdges;
+
+  /**
+   * Builds the index for the given elements. Edges whose source or target vertex is not
+   * contained in the given vertices are ignored for that direction.
+   *
+   * @param vertices vertices
+   * @param edges edges
+   */
+  AdjacencyIndex(Collection<Vertex> vertices, Collection<Edge> edges) {
+    this.vertexIds = new long[vertices.size()];
+    int i = 0;
+    for (Vertex vertex : vertices) {
+      vertexIds[i++] = vertex.getId();
+    }
+    Arrays.sort(vertexIds);
+    this.contiguous = vertexIds.length == 0 ||
+      vertexIds[vertexIds.length - 1] - vertexIds[0] == vertexIds.length - 1;
+
+    this.edges = edges.toArray(new Edge[edges.size()]);
+    Arrays.sort(this.edges, Comparator.comparingLong(Edge::getId));
+
+    int[] sources = new int[this.edges.length];
+    int[] targets = new int[this.edges.length];
+    for (int e = 0; e < this.edges.length; e++) {
+      Edge edge = this.edges[e];
+      sources[e] = edge.hasSourceVertexId() ? indexOf(edge.getSourceId()) : -1;
+      targets[e] = edge.hasTargetVertexId() ? indexOf(edge.getTargetId()) : -1;
+    }
+    this.outgoingOffsets = new int[vertexIds.length + 1];
+    this.outgoingEdges = group(sources, outgoingOffsets);
+    this.incomingOffsets = new int[vertexIds.length + 1];
+    this.incomingEdges = group(targets, incomingOffsets);
+  }
+
+  /**
+   * Returns the edges starting at the given vertex.
+   *
+   * @param vertexId vertex identifier
+   * @return outgoing edges ordered by identifier, empty if the vertex does not exist
+   */
+  List<Edge> getOutgoingEdges(long vertexId) {
+    return slice(indexOf(vertexId), outgoingOffsets, outgoingEdges);
+  }
+
+  /**
+   * Returns the edges ending at the given vertex.
+   *
+   * @param vertexId vertex identifier
+   * @return incoming edges ordered by identifier, empty if the vertex does not exist
+   */
+  List<Edge> getIncomingEdges(long vertexId) {
+    return slice(indexOf(vertexId), incomingOffsets, incomingEdges);
+  }
+
+  /**
+   * Returns the position of a vertex.
+   *
+   * @param vertexId vertex identifier
+   * @return position or -1 if the vertex does not exist
+   */
+  private int indexOf(long vertexId) {
+    if (vertexIds.length == 0) {
+      return -1;
+    }
+    if (contiguous) {
+      long index = vertexId - vertexIds[0];
+      return index >= 0 && index < vertexIds.length ? (int) index : -1;
+    }
+    int index = Arrays.binarySearch(vertexIds, vertexId);
+    return index >= 0 ? index : -1;
+  }
+
+  /**
+   * Groups edge positions by vertex using a counting sort, which keeps the edge order within
+   * each group.
+   *
+   * @param vertices vertex position of each edge or -1 if the edge shall be ignored
+   * @param offsets array of size |V| + 1 which receives the start of each group
+   * @return edge positions grouped by vertex
+   */
+  private static int[] group(int[] vertices, int[] offsets) {
+    int count = 0;
+    for (int vertex : vertices) {
+      if (vertex >= 0) {
+        offsets[vertex + 1]++;
+        count++;
+      }
+    }
+    for (int v = 0; v < offsets.length - 1; v++) {
+      offsets[v + 1] += offsets[v];
+    }
+    int[] grouped = new int[count];
+    int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+    for (int e = 0; e < vertices.length; e++) {
+      if (vertices[e] >= 0) {
+        grouped[next[vertices[e]]++] = e;
+      }
+    }
+    return grouped;
+  }
+
+  private List<Edge> slice(int vertex, int[] offsets, int[] positions) {
+    if (vertex < 0) {
+      return Collections.emptyList();
+    }
+    return new EdgeList(positions, offsets[vertex], offsets[vertex + 1]);
+  }
+
+  /**
+   * Read-only view of a range of edge positions.
+   */
+  private class EdgeList extends AbstractList<Edge> implements RandomAccess {
+    private final int[] positions;
+    private final int from;
+    private final int to;
+
+    EdgeList(int[] positions, int from, int to) {
+      this.positions = positions;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public Edge get(int index) {
+      if (index < 0 || index >= to - from) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+      }
+      return edges[positions[from + index]];
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+  }
+}
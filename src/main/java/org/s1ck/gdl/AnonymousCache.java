@@ -0,0 +1,229 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl;
+
+import org.s1ck.gdl.model.Element;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Cache of the elements bound to auto-generated variables, which consist of a prefix and the
+ * element identifier (e.g. {@code __v42}).
+ *
+ * Elements are stored by identifier, the variables are neither created nor hashed when an
+ * element is added. Lookups decode the identifier from the variable. Identifiers close to the
+ * first identifier are stored in an array, others in a {@link LongMap}.
+ *
+ * @param <V> element type
+ */
+class AnonymousCache<V extends Element> extends AbstractMap<String, V> {
+  /**
+   * Number of array slots which are allocated beyond twice the number of elements.
+   */
+  private static final int SLACK = 64;
+  /**
+   * Variable prefix.
+   */
+  private final String prefix;
+  /**
+   * Elements by identifier minus {@link #base}.
+   */
+  private Object[] elements = new Object[16];
+  /**
+   * Identifier of the first array slot, set by the first element.
+   */
+  private long base;
+  /**
+   * Elements whose identifiers are out of the array range.
+   */
+  private final LongMap<V> overflow = new LongMap<>();
+  /**
+   * Number of elements in the array.
+   */
+  private int arraySize;
+
+  /**
+   * Creates an empty cache.
+   *
+   * @param prefix variable prefix
+   */
+  AnonymousCache(String prefix) {
+    this.prefix = prefix;
+  }
+
+  /**
+   * Adds an element whose variable consists of the prefix and its identifier.
+   *
+   * @param element element with auto-generated variable
+   */
+  void add(V element) {
+    put(element.getId(), element);
+  }
+
+  @Override
+  public V put(String key, V value) {
+    if (!isVariable(key)) {
+      throw new IllegalArgumentException("Not an auto-generated variable: " + key);
+    }
+    return put(parseId(key), value);
+  }
+
+  @Override
+  public V get(Object key) {
+    return key instanceof String && isVariable((String) key) ? get(parseId((String) key)) : null;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public int size() {
+    return arraySize + overflow.size();
+  }
+
+  @Override
+  public Set<Entry<String, V>> entrySet() {
+    return new AbstractSet<Entry<String, V>>() {
+      @Override
+      public int size() {
+        return AnonymousCache.this.size();
+      }
+
+      @Override
+      public Iterator<Entry<String, V>> iterator() {
+        return new Iterator<Entry<String, V>>() {
+          private int slot = nextSlot(0);
+          private final Iterator<V> overflowElements = overflow.values().iterator();
+
+          @Override
+          public boolean hasNext() {
+            return slot < elements.length || overflowElements.hasNext();
+          }
+
+          @Override
+          @SuppressWarnings("unchecked")
+          public Entry<String, V> next() {
+            V element;
+            if (slot < elements.length) {
+              element = (V) elements[slot];
+              slot = nextSlot(slot + 1);
+            } else if (overflowElements.hasNext()) {
+              element = overflowElements.next();
+            } else {
+              throw new NoSuchElementException();
+            }
+            return new SimpleImmutableEntry<>(prefix + element.getId(), element);
+          }
+        };
+      }
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private V get(long id) {
+    long index = id - base;
+    if (arraySize > 0 && index >= 0 && index < elements.length) {
+      return (V) elements[(int) index];
+    }
+    return overflow.get(id);
+  }
+
+  @SuppressWarnings("unchecked")
+  private V put(long id, V element) {
+    if (arraySize == 0 && overflow.size() == 0) {
+      base = id;
+    }
+    long index = id - base;
+    if (index >= 0 && index < 2L * arraySize + SLACK && index < Integer.MAX_VALUE - 8) {
+      if (index >= elements.length) {
+        elements = Arrays.copyOf(elements,
+          (int) Math.min(Math.max(index + 1, 2L * elements.length), Integer.MAX_VALUE - 8));
+      }
+      V previous = (V) elements[(int) index];
+      elements[(int) index] = element;
+      if (previous == null) {
+        arraySize++;
+      }
+      return previous;
+    }
+    return overflow.put(id, element);
+  }
+
+  private int nextSlot(int slot) {
+    while (slot < elements.length && elements[slot] == null) {
+      slot++;
+    }
+    return slot;
+  }
+
+  /**
+   * Checks if a string consists of the prefix and the canonical decimal representation of a long
+   * value, i.e. without sign (except minus) and leading zeros.
+   *
+   * @param key variable
+   * @return true, iff the variable may be auto-generated
+   */
+  private boolean isVariable(String key) {
+    if (key == null || !key.startsWith(prefix)) {
+      return false;
+    }
+    int start = prefix.length();
+    boolean negative = key.length() > start && key.charAt(start) == '-';
+    if (negative) {
+      start++;
+    }
+    int digits = key.length() - start;
+    if (digits == 0 || digits > 19 || (key.charAt(start) == '0' && (digits > 1 || negative))) {
+      return false;
+    }
+    for (int i = start; i < key.length(); i++) {
+      char c = key.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    // compares the digits with the largest absolute value
+    return digits < 19 || key.substring(start).compareTo(negative ?
+      "9223372036854775808" : "9223372036854775807") <= 0;
+  }
+
+  /**
+   * Decodes the identifier of a valid variable.
+   *
+   * @param key variable, see {@link #isVariable(String)}
+   * @return element identifier
+   */
+  private long parseId(String key) {
+    int start = prefix.length();
+    boolean negative = key.charAt(start) == '-';
+    long id = 0L;
+    // accumulates negatively to cover Long.MIN_VALUE
+    for (int i = negative ? start + 1 : start; i < key.length(); i++) {
+      id = id * 10 - (key.charAt(i) - '0');
+    }
+    return negative ? id : -id;
+  }
+}
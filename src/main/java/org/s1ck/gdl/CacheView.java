@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Unmodifiable view of the user-defined and auto-generated variable caches of an element type,
+ * which reflects later changes of both caches without copying them. Like a map to which the user
+ * cache and then the auto cache have been added, auto-generated variables take precedence.
+ *
+ * @param <V> element type
+ */
+class CacheView<V> extends AbstractMap<String, V> {
+  /**
+   * Elements by user-defined variable.
+   */
+  private final Map<String, V> userCache;
+  /**
+   * Elements by auto-generated variable.
+   */
+  private final Map<String, V> autoCache;
+
+  /**
+   * Creates a view of both caches.
+   *
+   * @param userCache user-defined cache
+   * @param autoCache auto-generated cache
+   */
+  CacheView(Map<String, V> userCache, Map<String, V> autoCache) {
+    this.userCache = userCache;
+    this.autoCache = autoCache;
+  }
+
+  @Override
+  public V get(Object key) {
+    V value = autoCache.get(key);
+    return value != null ? value : userCache.get(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return autoCache.containsKey(key) || userCache.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    int size = autoCache.size();
+    for (String key : userCache.keySet()) {
+      if (!autoCache.containsKey(key)) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return autoCache.isEmpty() && userCache.isEmpty();
+  }
+
+  @Override
+  public Set<Entry<String, V>> entrySet() {
+    return new AbstractSet<Entry<String, V>>() {
+      @Override
+      public int size() {
+        return CacheView.this.size();
+      }
+
+      @Override
+      public Iterator<Entry<String, V>> iterator() {
+        return new Iterator<Entry<String, V>>() {
+          private final Iterator<Entry<String, V>> autoEntries = autoCache.entrySet().iterator();
+          private final Iterator<Entry<String, V>> userEntries = userCache.entrySet().iterator();
+          private Entry<String, V> next = advance();
+
+          /**
+           * Returns the next auto-generated entry or the next user-defined entry which is not
+           * hidden by an auto-generated one.
+           */
+          private Entry<String, V> advance() {
+            if (autoEntries.hasNext()) {
+              return new SimpleImmutableEntry<>(autoEntries.next());
+            }
+            while (userEntries.hasNext()) {
+              Entry<String, V> entry = userEntries.next();
+              if (!autoCache.containsKey(entry.getKey())) {
+                return new SimpleImmutableEntry<>(entry);
+              }
+            }
+            return null;
+          }
+
+          @Override
+          public boolean hasNext() {
+            return next != null;
+          }
+
+          @Override
+          public Entry<String, V> next() {
+            if (next == null) {
+              throw new NoSuchElementException();
+            }
+            Entry<String, V> entry = next;
+            next = advance();
+            return entry;
+          }
+        };
+      }
+    };
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl;
+
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.GraphElement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Indexes the elements of one type by identifier, label and graph.
+ *
+ * The index is updated by the {@link GDLLoader} whenever an element is added to the database or
+ * to a graph. Labels are indexed by their code in the symbol dictionary of the loader. Changes
+ * made to elements outside of the loader are not reflected.
+ *
+ * @param <E> element type
+ */
+class ElementIndex<E extends Element> {
+  /**
+   * Elements by identifier.
+   */
+  private final LongMap<E> byId = new LongMap<>();
+  /**
+   * Elements by label code, entries are {@code null} if no element has the label.
+   */
+  private final List<List<E>> byLabel = new ArrayList<>();
+  /**
+   * Graph elements by graph identifier.
+   */
+  private final LongMap<List<E>> byGraph = new LongMap<>();
+  /**
+   * Property indexes which are updated with new elements.
+   */
+  private final List<PropertyIndex<E>> propertyIndexes = new ArrayList<>();
+
+  /**
+   * Adds a new element including its labels and graphs.
+   *
+   * @param element new element
+   */
+  void add(E element) {
+    byId.put(element.getId(), element);
+    int[] labels = element.getLabelCodes();
+    if (labels != null) {
+      for (int label : labels) {
+        if (label >= 0) {
+          while (byLabel.size() <= label) {
+            byLabel.add(null);
+          }
+          if (byLabel.get(label) == null) {
+            byLabel.set(label, new ArrayList<>());
+          }
+          byLabel.get(label).add(element);
+        }
+      }
+    }
+    if (element instanceof GraphElement) {
+      for (long graphId : ((GraphElement) element).getGraphIds()) {
+        addToGraph(element, graphId);
+      }
+    }
+    for (PropertyIndex<E> propertyIndex : propertyIndexes) {
+      propertyIndex.add(element);
+    }
+  }
+
+  /**
+   * Adds all indexed elements with the label of a new property index to it and keeps it up to
+   * date from now on.
+   *
+   * @param propertyIndex empty property index
+   */
+  void addPropertyIndex(PropertyIndex<E> propertyIndex) {
+    for (E element : getByLabel(propertyIndex.getLabelCode())) {
+      propertyIndex.add(element);
+    }
+    propertyIndexes.add(propertyIndex);
+  }
+
+  /**
+   * Adds an indexed element to a graph.
+   *
+   * @param element indexed element, which has not been contained in the graph
+   * @param graphId graph identifier
+   */
+  void addToGraph(E element, long graphId) {
+    List<E> members = byGraph.get(graphId);
+    if (members == null) {
+      members = new ArrayList<>();
+      byGraph.put(graphId, members);
+    }
+    members.add(element);
+  }
+
+  /**
+   * Returns the element with the given identifier in O(1).
+   *
+   * @param id element identifier
+   * @return element or {@code null} if there is no such element
+   */
+  E get(long id) {
+    return byId.get(id);
+  }
+
+  /**
+   * Returns the elements with the given label in insertion order.
+   *
+   * @param label label code
+   * @return unmodifiable view of the elements
+   */
+  List<E> getByLabel(int label) {
+    List<E> elements = label >= 0 && label < byLabel.size() ? byLabel.get(label) : null;
+    return elements != null ? Collections.unmodifiableList(elements) : Collections.emptyList();
+  }
+
+  /**
+   * Returns the elements contained in the given graph in insertion order.
+   *
+   * @param graphId graph identifier
+   * @return unmodifiable view of the elements
+   */
+  List<E> getByGraph(long graphId) {
+    List<E> elements = byGraph.get(graphId);
+    return elements != null ? Collections.unmodifiableList(elements) : Collections.emptyList();
+  }
+}
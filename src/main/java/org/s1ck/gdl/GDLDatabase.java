@@ -0,0 +1,593 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl;
+
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.Graph;
+import org.s1ck.gdl.model.GraphElement;
+import org.s1ck.gdl.model.SymbolDictionary;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.predicates.Predicate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Immutable copy of the graphs, vertices and edges of a {@link GDLHandler} (see
+ * {@link GDLHandler#freeze()}).
+ *
+ * Each element type is stored in an {@link ElementTable}, which holds flat arrays ordered by
+ * element identifier. Elements are addressed by their index in these arrays, so iterating all
+ * elements of a type is a sequential scan. Labels are encoded by a dictionary of this database,
+ * properties are stored per key in columns, graph memberships and edge endpoints refer to the
+ * indexes of graphs and vertices. A database can be shared between threads without locking.
+ */
+public final class GDLDatabase {
+  /**
+   * Code returned by {@link #getSymbolCode(String)} for symbols which do not occur.
+   */
+  public static final int MISSING_SYMBOL = -2;
+
+  /**
+   * Labels by code.
+   */
+  private final String[] symbols;
+  /**
+   * Codes by label.
+   */
+  private final Map<String, Integer> symbolCodes;
+  /**
+   * Graphs ordered by identifier.
+   */
+  private final ElementTable graphs;
+  /**
+   * Vertices ordered by identifier.
+   */
+  private final GraphElementTable vertices;
+  /**
+   * Edges ordered by identifier.
+   */
+  private final EdgeTable edges;
+  /**
+   * Predicates of a query or {@code null}.
+   */
+  private final Predicate predicates;
+
+  /**
+   * Copies the current state of a loader.
+   *
+   * @param loader GDL loader
+   */
+  GDLDatabase(GDLLoader loader) {
+    List<String> symbolList = new ArrayList<>();
+    Map<String, Integer> codes = new HashMap<>();
+
+    Graph[] graphArray = sorted(loader.getGraphs(), new Graph[0]);
+    Vertex[] vertexArray = sorted(loader.getVertices(), new Vertex[0]);
+    Edge[] edgeArray = sorted(loader.getEdges(), new Edge[0]);
+
+    this.graphs = new ElementTable(graphArray, symbolList, codes);
+    this.vertices = new GraphElementTable(vertexArray, symbolList, codes, graphs);
+    this.edges = new EdgeTable(edgeArray, symbolList, codes, graphs, vertices);
+    this.symbols = symbolList.toArray(new String[symbolList.size()]);
+    this.symbolCodes = codes;
+    this.predicates = loader.getPredicates().orElse(null);
+  }
+
+  /**
+   * Returns the graphs.
+   *
+   * @return graph table
+   */
+  public ElementTable getGraphs() {
+    return graphs;
+  }
+
+  /**
+   * Returns the vertices.
+   *
+   * @return vertex table
+   */
+  public GraphElementTable getVertices() {
+    return vertices;
+  }
+
+  /**
+   * Returns the edges.
+   *
+   * @return edge table
+   */
+  public EdgeTable getEdges() {
+    return edges;
+  }
+
+  /**
+   * Returns the predicates defined by the query in CNF.
+   *
+   * @return predicates
+   */
+  public Optional<Predicate> getPredicates() {
+    return Optional.ofNullable(predicates);
+  }
+
+  /**
+   * Returns the code of a label in this database.
+   *
+   * @param symbol label
+   * @return label code, {@link SymbolDictionary#NULL_CODE} for {@code null} or
+   *         {@link #MISSING_SYMBOL} if no element has the label
+   */
+  public int getSymbolCode(String symbol) {
+    if (symbol == null) {
+      return SymbolDictionary.NULL_CODE;
+    }
+    Integer code = symbolCodes.get(symbol);
+    return code != null ? code : MISSING_SYMBOL;
+  }
+
+  /**
+   * Returns the label for a code of this database.
+   *
+   * @param code label code
+   * @return label
+   */
+  public String getSymbol(int code) {
+    return code == SymbolDictionary.NULL_CODE ? null : symbols[code];
+  }
+
+  private static <T extends Element> T[] sorted(Collection<? extends T> elements, T[] type) {
+    T[] array = elements.toArray(type);
+    Arrays.sort(array, Comparator.comparingLong(Element::getId));
+    return array;
+  }
+
+  /**
+   * Returns an immutable copy of a property value.
+   *
+   * @param value property value
+   * @return immutable value
+   */
+  private static Object freeze(Object value) {
+    if (value instanceof List) {
+      return Collections.unmodifiableList(new ArrayList<>((List<?>) value));
+    }
+    return value;
+  }
+
+  /**
+   * Values of a property key. Dense columns hold a value for every element, sparse columns hold
+   * the sorted indexes of the elements which have the property.
+   */
+  private static final class Column {
+    /**
+     * Element indexes or {@code null} if the column is dense.
+     */
+    private final int[] rows;
+    /**
+     * Values by row.
+     */
+    private final Object[] values;
+
+    private Column(int[] rows, Object[] values) {
+      this.rows = rows;
+      this.values = values;
+    }
+
+    private int rowOf(int index) {
+      return rows == null ? index : Arrays.binarySearch(rows, index);
+    }
+  }
+
+  /**
+   * Collects the values of a property key in element order.
+   */
+  private static final class ColumnBuilder {
+    private int[] rows = new int[4];
+    private Object[] values = new Object[4];
+    private int size;
+
+    private void add(int row, Object value) {
+      if (size == rows.length) {
+        rows = Arrays.copyOf(rows, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      rows[size] = row;
+      values[size++] = freeze(value);
+    }
+
+    private Column build(int elementCount) {
+      return new Column(size == elementCount ? null : Arrays.copyOf(rows, size),
+        Arrays.copyOf(values, size));
+    }
+  }
+
+  /**
+   * Elements of one type ordered by identifier.
+   */
+  public static class ElementTable {
+    /**
+     * Identifiers by index.
+     */
+    private final long[] ids;
+    /**
+     * Variables by index.
+     */
+    private final String[] variables;
+    /**
+     * Start of the labels of each element in {@link #labelCodes}.
+     */
+    private final int[] labelOffsets;
+    /**
+     * Label codes of all elements.
+     */
+    private final int[] labelCodes;
+    /**
+     * Labels by code, shared by all tables of a database.
+     */
+    private final List<String> symbols;
+    /**
+     * Property columns by key.
+     */
+    private final Map<String, Column> columns;
+
+    private ElementTable(Element[] elements, List<String> symbols, Map<String, Integer> codes) {
+      int count = elements.length;
+      this.ids = new long[count];
+      this.variables = new String[count];
+      this.labelOffsets = new int[count + 1];
+      this.symbols = symbols;
+
+      int labelCount = 0;
+      for (Element element : elements) {
+        List<String> labels = element.getLabels();
+        labelCount += labels != null ? labels.size() : 0;
+      }
+      this.labelCodes = new int[labelCount];
+
+      Map<String, ColumnBuilder> builders = new LinkedHashMap<>();
+      int label = 0;
+      for (int i = 0; i < count; i++) {
+        Element element = elements[i];
+        ids[i] = element.getId();
+        variables[i] = element.getVariable();
+        List<String> labels = element.getLabels();
+        if (labels != null) {
+          for (String symbol : labels) {
+            labelCodes[label++] = encode(symbol, symbols, codes);
+          }
+        }
+        labelOffsets[i + 1] = label;
+        for (Map.Entry<String, Object> property : element.getProperties().entrySet()) {
+          builders.computeIfAbsent(property.getKey(), key -> new ColumnBuilder())
+            .add(i, property.getValue());
+        }
+      }
+
+      Map<String, Column> columns = new LinkedHashMap<>();
+      builders.forEach((key, builder) -> columns.put(key, builder.build(count)));
+      this.columns = Collections.unmodifiableMap(columns);
+    }
+
+    private static int encode(String symbol, List<String> symbols, Map<String, Integer> codes) {
+      if (symbol == null) {
+        return SymbolDictionary.NULL_CODE;
+      }
+      return codes.computeIfAbsent(symbol, s -> {
+        symbols.add(s);
+        return symbols.size() - 1;
+      });
+    }
+
+    /**
+     * Returns the number of elements.
+     *
+     * @return number of elements
+     */
+    public int size() {
+      return ids.length;
+    }
+
+    /**
+     * Returns the identifier of an element.
+     *
+     * @param index element index
+     * @return element identifier
+     */
+    public long getId(int index) {
+      return ids[index];
+    }
+
+    /**
+     * Returns the index of the element with the given identifier in O(log n).
+     *
+     * @param id element identifier
+     * @return element index or -1 if there is no such element
+     */
+    public int indexOf(long id) {
+      int index = Arrays.binarySearch(ids, id);
+      return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Returns the variable of an element.
+     *
+     * @param index element index
+     * @return variable
+     */
+    public String getVariable(int index) {
+      return variables[index];
+    }
+
+    /**
+     * Returns the first label of an element.
+     *
+     * @param index element index
+     * @return label or {@code null} if the element has no label
+     */
+    public String getLabel(int index) {
+      int offset = labelOffsets[index];
+      return offset < labelOffsets[index + 1] ? decode(labelCodes[offset]) : null;
+    }
+
+    /**
+     * Returns the labels of an element.
+     *
+     * @param index element index
+     * @return immutable list of labels
+     */
+    public List<String> getLabels(int index) {
+      String[] labels = new String[labelOffsets[index + 1] - labelOffsets[index]];
+      for (int i = 0; i < labels.length; i++) {
+        labels[i] = decode(labelCodes[labelOffsets[index] + i]);
+      }
+      return Collections.unmodifiableList(Arrays.asList(labels));
+    }
+
+    /**
+     * Returns the label codes of an element, see {@link GDLDatabase#getSymbolCode(String)}.
+     *
+     * @param index element index
+     * @return label codes
+     */
+    public int[] getLabelCodes(int index) {
+      return Arrays.copyOfRange(labelCodes, labelOffsets[index], labelOffsets[index + 1]);
+    }
+
+    /**
+     * Checks if an element has the label with the given code.
+     *
+     * @param index element index
+     * @param code label code, see {@link GDLDatabase#getSymbolCode(String)}
+     * @return true, iff the element has the label
+     */
+    public boolean hasLabel(int index, int code) {
+      for (int i = labelOffsets[index]; i < labelOffsets[index + 1]; i++) {
+        if (labelCodes[i] == code) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Returns all property keys used by elements of this table.
+     *
+     * @return property keys
+     */
+    public Set<String> getPropertyKeys() {
+      return columns.keySet();
+    }
+
+    /**
+     * Checks if an element has a property.
+     *
+     * @param index element index
+     * @param key property key
+     * @return true, iff the element has the property
+     */
+    public boolean hasProperty(int index, String key) {
+      Column column = columns.get(key);
+      return column != null && column.rowOf(index) >= 0;
+    }
+
+    /**
+     * Returns a property value of an element.
+     *
+     * @param index element index
+     * @param key property key
+     * @return property value or {@code null} if the element does not have the property
+     */
+    public Object getProperty(int index, String key) {
+      Column column = columns.get(key);
+      if (column == null) {
+        return null;
+      }
+      int row = column.rowOf(index);
+      return row >= 0 ? column.values[row] : null;
+    }
+
+    /**
+     * Returns all properties of an element.
+     *
+     * @param index element index
+     * @return immutable property map
+     */
+    public Map<String, Object> getProperties(int index) {
+      Map<String, Object> properties = new LinkedHashMap<>();
+      columns.forEach((key, column) -> {
+        int row = column.rowOf(index);
+        if (row >= 0) {
+          properties.put(key, column.values[row]);
+        }
+      });
+      return Collections.unmodifiableMap(properties);
+    }
+
+    private String decode(int code) {
+      return code == SymbolDictionary.NULL_CODE ? null : symbols.get(code);
+    }
+  }
+
+  /**
+   * Elements which are contained in graphs.
+   */
+  public static class GraphElementTable extends ElementTable {
+    /**
+     * Start of the graphs of each element in {@link #graphIndexes}.
+     */
+    private final int[] graphOffsets;
+    /**
+     * Sorted graph indexes of all elements.
+     */
+    private final int[] graphIndexes;
+
+    private GraphElementTable(GraphElement[] elements, List<String> symbols,
+      Map<String, Integer> codes, ElementTable graphs) {
+      super(elements, symbols, codes);
+      this.graphOffsets = new int[elements.length + 1];
+      int graphCount = 0;
+      for (GraphElement element : elements) {
+        graphCount += element.getGraphCount();
+      }
+      int[] indexes = new int[graphCount];
+      int next = 0;
+      for (int i = 0; i < elements.length; i++) {
+        int start = next;
+        for (long graphId : elements[i].getGraphIds()) {
+          int graph = graphs.indexOf(graphId);
+          if (graph >= 0) {
+            indexes[next++] = graph;
+          }
+        }
+        // graph indexes have the same order as graph identifiers
+        Arrays.sort(indexes, start, next);
+        graphOffsets[i + 1] = next;
+      }
+      this.graphIndexes = Arrays.copyOf(indexes, next);
+    }
+
+    /**
+     * Returns the indexes of the graphs which contain an element.
+     *
+     * @param index element index
+     * @return sorted graph indexes
+     */
+    public int[] getGraphIndexes(int index) {
+      return Arrays.copyOfRange(graphIndexes, graphOffsets[index], graphOffsets[index + 1]);
+    }
+
+    /**
+     * Checks if a graph contains an element.
+     *
+     * @param index element index
+     * @param graphIndex graph index
+     * @return true, iff the graph contains the element
+     */
+    public boolean isInGraph(int index, int graphIndex) {
+      return Arrays.binarySearch(
+        graphIndexes, graphOffsets[index], graphOffsets[index + 1], graphIndex) >= 0;
+    }
+  }
+
+  /**
+   * Edges with the indexes of their source and target vertices.
+   */
+  public static final class EdgeTable extends GraphElementTable {
+    /**
+     * Source vertex indexes.
+     */
+    private final int[] sources;
+    /**
+     * Target vertex indexes.
+     */
+    private final int[] targets;
+    /**
+     * Lower bounds of variable length edges.
+     */
+    private final int[] lowerBounds;
+    /**
+     * Upper bounds of variable length edges.
+     */
+    private final int[] upperBounds;
+
+    private EdgeTable(Edge[] edges, List<String> symbols, Map<String, Integer> codes,
+      ElementTable graphs, ElementTable vertices) {
+      super(edges, symbols, codes, graphs);
+      this.sources = new int[edges.length];
+      this.targets = new int[edges.length];
+      this.lowerBounds = new int[edges.length];
+      this.upperBounds = new int[edges.length];
+      for (int i = 0; i < edges.length; i++) {
+        Edge edge = edges[i];
+        sources[i] = edge.hasSourceVertexId() ? vertices.indexOf(edge.getSourceId()) : -1;
+        targets[i] = edge.hasTargetVertexId() ? vertices.indexOf(edge.getTargetId()) : -1;
+        lowerBounds[i] = edge.getLowerBound();
+        upperBounds[i] = edge.getUpperBound();
+      }
+    }
+
+    /**
+     * Returns the index of the source vertex of an edge.
+     *
+     * @param index edge index
+     * @return vertex index or -1 if the source vertex is unknown
+     */
+    public int getSourceIndex(int index) {
+      return sources[index];
+    }
+
+    /**
+     * Returns the index of the target vertex of an edge.
+     *
+     * @param index edge index
+     * @return vertex index or -1 if the target vertex is unknown
+     */
+    public int getTargetIndex(int index) {
+      return targets[index];
+    }
+
+    /**
+     * Returns the lower bound of a variable length edge.
+     *
+     * @param index edge index
+     * @return lower bound
+     */
+    public int getLowerBound(int index) {
+      return lowerBounds[index];
+    }
+
+    /**
+     * Returns the upper bound of a variable length edge.
+     *
+     * @param index edge index
+     * @return upper bound
+     */
+    public int getUpperBound(int index) {
+      return upperBounds[index];
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl;
+
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Graph;
+import org.s1ck.gdl.model.Vertex;
+
+/**
+ * Receives the elements of a GDL script while it is being parsed.
+ *
+ * Elements are emitted once the statement which created them has been processed completely.
+ * Elements bound to user-defined variables stay referenceable by later statements, which may
+ * add them to further graphs after they have been emitted.
+ */
+public interface GDLElementSink {
+
+  /**
+   * Called for each newly created graph.
+   *
+   * @param graph graph
+   */
+  void onGraph(Graph graph);
+
+  /**
+   * Called for each newly created vertex.
+   *
+   * @param vertex vertex
+   */
+  void onVertex(Vertex vertex);
+
+  /**
+   * Called for each newly created edge.
+   *
+   * @param edge edge
+   */
+  void onEdge(Edge edge);
+}
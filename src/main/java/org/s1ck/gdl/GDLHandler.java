@@ -16,24 +16,65 @@
 
 package org.s1ck.gdl;
 
+import org.antlr.v4.runtime.ANTLRErrorListener;
 import org.antlr.v4.runtime.ANTLRErrorStrategy;
-import org.antlr.v4.runtime.ANTLRFileStream;
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+import org.antlr.v4.runtime.UnbufferedTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.s1ck.gdl.exceptions.UnboundParameterException;
+import org.s1ck.gdl.io.GzipCharStream;
+import org.s1ck.gdl.io.MappedFileCharStream;
 import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Element;
 import org.s1ck.gdl.model.Graph;
+import org.s1ck.gdl.model.OffHeapPropertyStore;
+import org.s1ck.gdl.model.SymbolDictionary;
 import org.s1ck.gdl.model.Vertex;
 import org.s1ck.gdl.model.predicates.Predicate;
 import org.s1ck.gdl.utils.ContinuousId;
+import org.s1ck.gdl.utils.IdAllocator;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Helper class that wraps ANTLR initialization logic.
@@ -44,18 +85,58 @@ public class GDLHandler {
    */
   private GDLLoader loader;
 
+  /**
+   * Strategy for handling parser errors of appended strings.
+   */
+  private final ANTLRErrorStrategy errorStrategy;
+
+  /**
+   * Flag to indicate if appended strings are parsed using SLL prediction first.
+   */
+  private final boolean useTwoStageParsing;
+
+  /**
+   * Counters for two-stage parsing.
+   */
+  private final ParseStatistics statistics;
+
+  /**
+   * Lexer which is reused for appended strings, initialized on first use.
+   */
+  private GDLLexer lexer;
+
+  /**
+   * Parser which is reused for appended strings, initialized on first use.
+   */
+  private GDLParser parser;
+
+  /**
+   * Adjacency of the current elements, built on first use.
+   */
+  private AdjacencyIndex adjacency;
+
   /**
    * Private constructor to avoid external initialization.
    *
    * @param loader GDL loader
+   * @param errorStrategy strategy for handling parser errors of appended strings
+   * @param useTwoStageParsing true, iff appended strings shall be parsed using SLL prediction first
+   * @param statistics counters for two-stage parsing
    */
-  private GDLHandler(GDLLoader loader) {
+  private GDLHandler(GDLLoader loader, ANTLRErrorStrategy errorStrategy,
+    boolean useTwoStageParsing, ParseStatistics statistics) {
     this.loader = loader;
+    this.errorStrategy = errorStrategy;
+    this.useTwoStageParsing = useTwoStageParsing;
+    this.statistics = statistics;
   }
 
   /**
    * Append the given GDL string to the current database.
    *
+   * The string is parsed using the error strategy of the builder. Lexer and parser are reused
+   * between calls, so this method must not be called concurrently.
+   *
    * @param asciiString GDL string (must not be {@code null}).
    */
   public void append(String asciiString) {
@@ -63,10 +144,56 @@ public class GDLHandler {
       throw new IllegalArgumentException("AsciiString must not be null");
     }
     ANTLRInputStream antlrInputStream = new ANTLRInputStream(asciiString);
-    GDLLexer lexer = new GDLLexer(antlrInputStream);
-    GDLParser parser = new GDLParser(new CommonTokenStream(lexer));
+    if (lexer == null) {
+      lexer = new GDLLexer(antlrInputStream);
+      parser = new GDLParser(new CommonTokenStream(lexer));
+    } else {
+      // resets lexer and parser state
+      lexer.setInputStream(antlrInputStream);
+      parser.setTokenStream(new CommonTokenStream(lexer));
+    }
+    GDLParser.DatabaseContext tree = parse(parser, errorStrategy, useTwoStageParsing, statistics);
+    loader.getIncludeResolver().resolve(tree, null);
     // update the loader state while walking the parse tree
-    new ParseTreeWalker().walk(loader, parser.database());
+    ParseTreeWalker.DEFAULT.walk(loader, tree);
+    synchronized (this) {
+      adjacency = null;
+    }
+  }
+
+  /**
+   * Returns an immutable copy of all graphs, vertices and edges which stores elements in flat,
+   * id-ordered arrays and can be shared between threads. Later calls to
+   * {@link #append(String)} do not change the returned database.
+   *
+   * @return immutable database
+   */
+  public GDLDatabase freeze() {
+    return new GDLDatabase(loader);
+  }
+
+  /**
+   * Writes all graphs, vertices, edges, variable caches and predicates to a binary snapshot,
+   * which can be loaded using {@link Builder#buildFromSnapshot(InputStream)} without parsing.
+   *
+   * @param outputStream target stream, which is flushed but not closed (must not be {@code null}).
+   * @throws IOException if the stream cannot be written
+   */
+  public void writeSnapshot(OutputStream outputStream) throws IOException {
+    if (outputStream == null) {
+      throw new IllegalArgumentException("OutputStream must not be null.");
+    }
+    GDLSnapshot.write(loader, outputStream);
+  }
+
+  /**
+   * Returns the counters for two-stage parsing, which are shared with the builder that created
+   * this handler.
+   *
+   * @return parse statistics
+   */
+  public ParseStatistics getParseStatistics() {
+    return statistics;
   }
 
   /**
@@ -96,6 +223,164 @@ public class GDLHandler {
     return loader.getEdges();
   }
 
+  /**
+   * Returns the dictionary which encodes the labels and property keys of all elements created by
+   * this handler. Label codes can be compared using {@link Element#hasLabel(int)} without decoding
+   * the labels of an element.
+   *
+   * @return symbol dictionary
+   */
+  public SymbolDictionary getSymbolDictionary() {
+    return loader.getSymbolDictionary();
+  }
+
+  /**
+   * Returns the edges starting at the given vertex in O(degree).
+   *
+   * The adjacency of all vertices is built in compressed sparse row format on the first call and
+   * rebuilt after {@link #append(String)}. Changes to the source or target of existing edges are
+   * not reflected.
+   *
+   * @param vertexId vertex identifier
+   * @return immutable list of outgoing edges ordered by identifier, empty if the vertex does not
+   *         exist
+   */
+  public List<Edge> getOutgoingEdges(long vertexId) {
+    return getAdjacency().getOutgoingEdges(vertexId);
+  }
+
+  /**
+   * Returns the edges ending at the given vertex in O(degree).
+   *
+   * @param vertexId vertex identifier
+   * @return immutable list of incoming edges ordered by identifier, empty if the vertex does not
+   *         exist
+   * @see #getOutgoingEdges(long)
+   */
+  public List<Edge> getIncomingEdges(long vertexId) {
+    return getAdjacency().getIncomingEdges(vertexId);
+  }
+
+  /**
+   * Returns the graph with the given identifier in O(1).
+   *
+   * @param id graph identifier
+   * @return graph or {@code null} if there is no such graph
+   */
+  public Graph getGraphById(long id) {
+    return loader.getGraphIndex().get(id);
+  }
+
+  /**
+   * Returns the vertex with the given identifier in O(1), e.g. to resolve the source or target
+   * vertex of an edge.
+   *
+   * @param id vertex identifier
+   * @return vertex or {@code null} if there is no such vertex
+   */
+  public Vertex getVertexById(long id) {
+    return loader.getVertexIndex().get(id);
+  }
+
+  /**
+   * Returns the edge with the given identifier in O(1).
+   *
+   * @param id edge identifier
+   * @return edge or {@code null} if there is no such edge
+   */
+  public Edge getEdgeById(long id) {
+    return loader.getEdgeIndex().get(id);
+  }
+
+  /**
+   * Returns all graphs with the given label.
+   *
+   * The element indexes are maintained while loading and appending, i.e. they reflect the labels
+   * and graphs of the elements at the time they were added.
+   *
+   * @param label graph label
+   * @return unmodifiable list of graphs in creation order
+   */
+  public List<Graph> getGraphsByLabel(String label) {
+    return loader.getGraphIndex().getByLabel(loader.getSymbolDictionary().lookup(label));
+  }
+
+  /**
+   * Returns all vertices with the given label.
+   *
+   * @param label vertex label
+   * @return unmodifiable list of vertices in creation order
+   * @see #getGraphsByLabel(String)
+   */
+  public List<Vertex> getVerticesByLabel(String label) {
+    return loader.getVertexIndex().getByLabel(loader.getSymbolDictionary().lookup(label));
+  }
+
+  /**
+   * Returns all edges with the given label.
+   *
+   * @param label edge label
+   * @return unmodifiable list of edges in creation order
+   * @see #getGraphsByLabel(String)
+   */
+  public List<Edge> getEdgesByLabel(String label) {
+    return loader.getEdgeIndex().getByLabel(loader.getSymbolDictionary().lookup(label));
+  }
+
+  /**
+   * Returns all vertices contained in the given graph.
+   *
+   * @param graphId graph identifier
+   * @return unmodifiable list of vertices in the order they were added to the graph
+   * @see #getGraphsByLabel(String)
+   */
+  public List<Vertex> getVerticesOfGraph(long graphId) {
+    return loader.getVertexIndex().getByGraph(graphId);
+  }
+
+  /**
+   * Returns all edges contained in the given graph.
+   *
+   * @param graphId graph identifier
+   * @return unmodifiable list of edges in the order they were added to the graph
+   * @see #getGraphsByLabel(String)
+   */
+  public List<Edge> getEdgesOfGraph(long graphId) {
+    return loader.getEdgeIndex().getByGraph(graphId);
+  }
+
+  /**
+   * Creates an index over the values of a property of all vertices with the given label, which
+   * is kept up to date when data is appended.
+   *
+   * @param label vertex label (must not be {@code null}).
+   * @param key property key (must not be {@code null}).
+   * @param type index structure (must not be {@code null}).
+   * @return property index
+   */
+  public PropertyIndex<Vertex> createPropertyIndex(String label, String key,
+    PropertyIndex.Type type) {
+    PropertyIndex<Vertex> index = newPropertyIndex(label, key, type);
+    loader.getVertexIndex().addPropertyIndex(index);
+    return index;
+  }
+
+  /**
+   * Creates an index over the values of a property of all edges with the given label, which is
+   * kept up to date when data is appended.
+   *
+   * @param label edge label (must not be {@code null}).
+   * @param key property key (must not be {@code null}).
+   * @param type index structure (must not be {@code null}).
+   * @return property index
+   */
+  public PropertyIndex<Edge> createEdgePropertyIndex(String label, String key,
+    PropertyIndex.Type type) {
+    PropertyIndex<Edge> index = newPropertyIndex(label, key, type);
+    loader.getEdgeIndex().addPropertyIndex(index);
+    return index;
+  }
+
   /**
    * Returns the predicates defined by the query in CNF.
    *
@@ -106,7 +391,7 @@ public class GDLHandler {
   /**
    * Returns a cache that contains a mapping from user-defined variables to graph instances.
    *
-   * @return immutable graph cache
+   * @return unmodifiable view of the graph cache
    */
   public Map<String, Graph> getGraphCache() {
     return loader.getGraphCache();
@@ -118,7 +403,7 @@ public class GDLHandler {
    * @param includeUserDefined true, iff user-defined variables shall be included in the cache
    * @param includeAutoGenerated true, iff auto-generated variables shall be included in the cache
    *
-   * @return immutable graph cache
+   * @return unmodifiable view of the graph cache
    */
   public Map<String, Graph> getGraphCache(boolean includeUserDefined, boolean includeAutoGenerated) {
     return loader.getGraphCache(includeUserDefined, includeAutoGenerated);
@@ -127,7 +412,7 @@ public class GDLHandler {
   /**
    * Returns a cache that contains a mapping from user-defined variables to vertex instances.
    *
-   * @return immutable vertex cache
+   * @return unmodifiable view of the vertex cache
    */
   public Map<String, Vertex> getVertexCache() {
     return loader.getVertexCache();
@@ -139,7 +424,7 @@ public class GDLHandler {
    * @param includeUserDefined true, iff user-defined variables shall be included in the cache
    * @param includeAutoGenerated true, iff auto-generated variables shall be included in the cache
    *
-   * @return immutable vertex cache
+   * @return unmodifiable view of the vertex cache
    */
   public Map<String, Vertex> getVertexCache(boolean includeUserDefined, boolean includeAutoGenerated) {
     return loader.getVertexCache(includeUserDefined, includeAutoGenerated);
@@ -148,7 +433,7 @@ public class GDLHandler {
   /**
    * Returns a cache that contains a mapping from user-defined variables to edge instances.
    *
-   * @return immutable edge cache
+   * @return unmodifiable view of the edge cache
    */
   public Map<String, Edge> getEdgeCache() {
     return loader.getEdgeCache();
@@ -160,17 +445,145 @@ public class GDLHandler {
    * @param includeUserDefined true, iff user-defined variables shall be included in the cache
    * @param includeAutoGenerated true, iff auto-generated variables shall be included in the cache
    *
-   * @return immutable edge cache
+   * @return unmodifiable view of the edge cache
    */
   public Map<String, Edge> getEdgeCache(boolean includeUserDefined, boolean includeAutoGenerated) {
     return loader.getEdgeCache(includeUserDefined, includeAutoGenerated);
   }
 
+  /**
+   * Returns the graph bound to a user-defined or auto-generated variable without creating a
+   * cache view.
+   *
+   * @param variable graph variable
+   * @return graph or {@code null} if the variable is unbound
+   */
+  public Graph getGraph(String variable) {
+    return loader.getGraph(variable);
+  }
+
+  /**
+   * Returns the vertex bound to a user-defined or auto-generated variable without creating a
+   * cache view.
+   *
+   * @param variable vertex variable
+   * @return vertex or {@code null} if the variable is unbound
+   */
+  public Vertex getVertex(String variable) {
+    return loader.getVertex(variable);
+  }
+
+  /**
+   * Returns the edge bound to a user-defined or auto-generated variable without creating a
+   * cache view.
+   *
+   * @param variable edge variable
+   * @return edge or {@code null} if the variable is unbound
+   */
+  public Edge getEdge(String variable) {
+    return loader.getEdge(variable);
+  }
+
+  /**
+   * Creates an empty property index for elements of the given label.
+   *
+   * @param label element label
+   * @param key property key
+   * @param type index structure
+   * @param <E> element type
+   * @return property index
+   */
+  private <E extends Element> PropertyIndex<E> newPropertyIndex(String label, String key,
+    PropertyIndex.Type type) {
+    if (label == null) {
+      throw new IllegalArgumentException("Label must not be null.");
+    }
+    if (key == null) {
+      throw new IllegalArgumentException("Property key must not be null.");
+    }
+    if (type == null) {
+      throw new IllegalArgumentException("Index type must not be null.");
+    }
+    return new PropertyIndex<>(label, loader.getSymbolDictionary().encode(label), key, type);
+  }
+
+  /**
+   * Returns the adjacency of the current elements and builds it if necessary.
+   *
+   * @return adjacency index
+   */
+  private synchronized AdjacencyIndex getAdjacency() {
+    if (adjacency == null) {
+      adjacency = new AdjacencyIndex(loader.getVertices(), loader.getEdges());
+    }
+    return adjacency;
+  }
+
+  /**
+   * Parses a GDL script.
+   *
+   * Using two-stage parsing, the script is parsed with the faster SLL prediction mode first, which
+   * fails for some valid inputs and for all invalid inputs. In that case, the script is parsed
+   * again with full LL prediction and the given error strategy.
+   *
+   * @param parser parser on a buffered token stream
+   * @param errorStrategy strategy for handling parser errors
+   * @param useTwoStageParsing true, iff SLL prediction shall be tried first
+   * @param statistics counters for two-stage parsing
+   * @return parse tree
+   */
+  private static GDLParser.DatabaseContext parse(GDLParser parser, ANTLRErrorStrategy errorStrategy,
+    boolean useTwoStageParsing, ParseStatistics statistics) {
+    if (!useTwoStageParsing) {
+      parser.setErrorHandler(errorStrategy);
+      return parser.database();
+    }
+    statistics.countParse();
+    parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+    parser.setErrorHandler(new BailErrorStrategy());
+    try {
+      return parser.database();
+    } catch (ParseCancellationException e) {
+      statistics.countFallback();
+      parser.setErrorHandler(errorStrategy);
+      // rewinds the token stream, the lexer is not invoked again
+      parser.reset();
+      parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+      return parser.database();
+    }
+  }
+
   /**
    * Builds a GDL Handler.
    */
   public static class Builder {
 
+    /**
+     * Number of chunks per thread a script is split into for parallel parsing.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * Maximum size of the parse cache in bytes by default.
+     */
+    public static final long DEFAULT_PARSE_CACHE_SIZE = 256L << 20;
+
+    /**
+     * Maximum number of prepared scripts cached by a builder by default.
+     */
+    public static final int DEFAULT_PREPARED_CACHE_SIZE = 64;
+
+    /**
+     * Error listener which cancels parsing on the first syntax error.
+     */
+    private static final ANTLRErrorListener BAIL_ERROR_LISTENER = new BaseErrorListener() {
+      @Override
+      public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+        int charPositionInLine, String msg, RecognitionException e) {
+        throw new ParseCancellationException(msg, e);
+      }
+    };
+
     /**
      * Graph label.
      */
@@ -204,22 +617,98 @@ public class GDLHandler {
     /**
      * Id supplier for graphs.
      */
-    private Supplier<Long> nextGraphId = new ContinuousId();
+    private LongSupplier nextGraphId = new ContinuousId();
 
     /**
      * Id supplier for vertices.
      */
-    private Supplier<Long> nextVertexId = new ContinuousId();
+    private LongSupplier nextVertexId = new ContinuousId();
 
     /**
      * Id supplier for edges.
      */
-    private Supplier<Long> nextEdgeId = new ContinuousId();
+    private LongSupplier nextEdgeId = new ContinuousId();
+
+    /**
+     * Id allocator for graphs, used instead of the graph id supplier if set.
+     */
+    private IdAllocator graphIdAllocator;
+
+    /**
+     * Id allocator for vertices, used instead of the vertex id supplier if set.
+     */
+    private IdAllocator vertexIdAllocator;
+
+    /**
+     * Id allocator for edges, used instead of the edge id supplier if set.
+     */
+    private IdAllocator edgeIdAllocator;
+
+    /**
+     * Number of identifiers which are reserved at once from an id allocator.
+     */
+    private int idBlockSize = IdBlockSupplier.DEFAULT_BLOCK_SIZE;
+
+    /**
+     * Creates the strategy for handling parser errors of each parse.
+     */
+    private Supplier<? extends ANTLRErrorStrategy> errorStrategyFactory = DefaultErrorStrategy::new;
+
+    /**
+     * Flag to indicate if scripts are parsed using SLL prediction first.
+     */
+    private boolean useTwoStageParsing = false;
+
+    /**
+     * Counters for two-stage parsing.
+     */
+    private final ParseStatistics statistics = new ParseStatistics();
+
+    /**
+     * Directory of the parse cache or {@code null} if the cache is disabled.
+     */
+    private String parseCacheDirectory;
+
+    /**
+     * Maximum size of the parse cache in bytes.
+     */
+    private long parseCacheMaxSize = DEFAULT_PARSE_CACHE_SIZE;
+
+    /**
+     * Executor which parses included files.
+     */
+    private Executor includeExecutor = ForkJoinPool.commonPool();
+
+    /**
+     * Flag to indicate if property values are stored off-heap.
+     */
+    private boolean useOffHeapProperties = false;
+
+    /**
+     * Size of the chunks of the off-heap property store in bytes.
+     */
+    private int offHeapChunkSize = OffHeapPropertyStore.DEFAULT_CHUNK_SIZE;
 
     /**
-     * Strategy for handling parser errors.
+     * Flag to indicate if property values are parsed on first access.
      */
-    private ANTLRErrorStrategy errorStrategy = new DefaultErrorStrategy();
+    private boolean useLazyProperties = false;
+
+    /**
+     * Maximum number of cached prepared scripts.
+     */
+    private int preparedCacheSize = DEFAULT_PREPARED_CACHE_SIZE;
+
+    /**
+     * Prepared scripts by script and label settings in access order.
+     */
+    private final Map<List<Object>, PreparedGDL> preparedCache =
+      new LinkedHashMap<List<Object>, PreparedGDL>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, PreparedGDL> eldest) {
+          return size() > preparedCacheSize;
+        }
+      };
 
     /**
      * Default graph label is used if none is set in the GDL script.
@@ -315,123 +804,1079 @@ public class GDLHandler {
     }
 
     /**
-     * Sets the id generation function for graphs.
+     * Sets the id generation function for graphs. Use {@link #setNextGraphIdAsLong(LongSupplier)}
+     * to avoid boxing.
      *
      * @param nextGraphId graph id function (must not be {@code null})
      * @return builder
      */
     public Builder setNextGraphId(Supplier<Long> nextGraphId) {
+      // e.g. ContinuousId, which supplies unboxed ids as well
+      this.nextGraphId = nextGraphId instanceof LongSupplier || nextGraphId == null ?
+        (LongSupplier) nextGraphId : nextGraphId::get;
+      this.graphIdAllocator = null;
+      return this;
+    }
+
+    /**
+     * Sets the id generation function for graphs, which supplies unboxed ids.
+     *
+     * @param nextGraphId graph id function (must not be {@code null})
+     * @return builder
+     */
+    public Builder setNextGraphIdAsLong(LongSupplier nextGraphId) {
       this.nextGraphId = nextGraphId;
+      this.graphIdAllocator = null;
+      return this;
+    }
+
+    /**
+     * Sets an allocator which reserves blocks of contiguous graph ids, see
+     * {@link #setIdBlockSize(int)}. Each loader reserves a new block when its current block is
+     * exhausted, so the allocator is called once per block instead of once per graph. Replaces the
+     * graph id generation function.
+     *
+     * @param graphIdAllocator graph id allocator (must not be {@code null})
+     * @return builder
+     */
+    public Builder setGraphIdAllocator(IdAllocator graphIdAllocator) {
+      this.graphIdAllocator = graphIdAllocator;
+      this.nextGraphId = null;
       return this;
     }
 
     /**
-     * Sets the id generation function for vertices.
+     * Sets the id generation function for vertices. Use
+     * {@link #setNextVertexIdAsLong(LongSupplier)} to avoid boxing.
      *
      * @param nextVertexId vertex id function (must not be {@code null})
      * @return builder
      */
     public Builder setNextVertexId(Supplier<Long> nextVertexId) {
-      this.nextVertexId = nextVertexId;
+      // e.g. ContinuousId, which supplies unboxed ids as well
+      this.nextVertexId = nextVertexId instanceof LongSupplier || nextVertexId == null ?
+        (LongSupplier) nextVertexId : nextVertexId::get;
+      this.vertexIdAllocator = null;
       return this;
     }
 
     /**
-     * Sets the id generation function for edges.
+     * Sets the id generation function for vertices, which supplies unboxed ids.
      *
-     * @param nextEdgeId edge id function (must not be {@code null})
+     * @param nextVertexId vertex id function (must not be {@code null})
      * @return builder
      */
-    public Builder setNextEdgeId(Supplier<Long> nextEdgeId) {
-      this.nextEdgeId = nextEdgeId;
+    public Builder setNextVertexIdAsLong(LongSupplier nextVertexId) {
+      this.nextVertexId = nextVertexId;
+      this.vertexIdAllocator = null;
       return this;
     }
 
     /**
-     * Set the error handler strategy for ANTLR. If not set, {@link DefaultErrorStrategy} is used.
+     * Sets an allocator which reserves blocks of contiguous vertex ids, see
+     * {@link #setIdBlockSize(int)}. Each loader reserves a new block when its current block is
+     * exhausted, so the allocator is called once per block instead of once per vertex. Replaces the
+     * vertex id generation function.
      *
-     * @param errorStrategy ANTLR error strategy
+     * @param vertexIdAllocator vertex id allocator (must not be {@code null})
      * @return builder
      */
-    public Builder setErrorStrategy(ANTLRErrorStrategy errorStrategy) {
-      this.errorStrategy = errorStrategy;
+    public Builder setVertexIdAllocator(IdAllocator vertexIdAllocator) {
+      this.vertexIdAllocator = vertexIdAllocator;
+      this.nextVertexId = null;
       return this;
     }
 
     /**
-     * Initialize GDL Handler from given ASCII String.
+     * Sets the id generation function for edges. Use {@link #setNextEdgeIdAsLong(LongSupplier)}
+     * to avoid boxing.
      *
-     * @param asciiString GDL string (must not be {@code null}).
-     * @return GDL handler
+     * @param nextEdgeId edge id function (must not be {@code null})
+     * @return builder
      */
-    public GDLHandler buildFromString(String asciiString) {
-      ANTLRInputStream antlrInputStream = new ANTLRInputStream(asciiString);
-      return build(antlrInputStream);
+    public Builder setNextEdgeId(Supplier<Long> nextEdgeId) {
+      // e.g. ContinuousId, which supplies unboxed ids as well
+      this.nextEdgeId = nextEdgeId instanceof LongSupplier || nextEdgeId == null ?
+        (LongSupplier) nextEdgeId : nextEdgeId::get;
+      this.edgeIdAllocator = null;
+      return this;
     }
 
     /**
-     * Initializes GDL Handler from given input stream.
+     * Sets the id generation function for edges, which supplies unboxed ids.
      *
-     * @param stream InputStream (must not be {@code null}).
-     * @return GDL handler
-     * @throws IOException
+     * @param nextEdgeId edge id function (must not be {@code null})
+     * @return builder
      */
-    public GDLHandler buildFromStream(InputStream stream) throws IOException {
-      ANTLRInputStream antlrInputStream = new ANTLRInputStream(stream);
-      return build(antlrInputStream);
+    public Builder setNextEdgeIdAsLong(LongSupplier nextEdgeId) {
+      this.nextEdgeId = nextEdgeId;
+      this.edgeIdAllocator = null;
+      return this;
     }
 
     /**
-     * Initializes GDL Handler from given file.
+     * Sets an allocator which reserves blocks of contiguous edge ids, see
+     * {@link #setIdBlockSize(int)}. Each loader reserves a new block when its current block is
+     * exhausted, so the allocator is called once per block instead of once per edge. Replaces the
+     * edge id generation function.
      *
-     * @param fileName GDL file (must not be {@code null}).
-     * @return GDL handler
+     * @param edgeIdAllocator edge id allocator (must not be {@code null})
+     * @return builder
      */
-    public GDLHandler buildFromFile(String fileName) throws IOException {
-      ANTLRInputStream antlrInputStream = new ANTLRFileStream(fileName);
-      return build(antlrInputStream);
+    public Builder setEdgeIdAllocator(IdAllocator edgeIdAllocator) {
+      this.edgeIdAllocator = edgeIdAllocator;
+      this.nextEdgeId = null;
+      return this;
     }
 
     /**
-     * Checks valid input and creates GDL Handler.
+     * Sets the number of ids which are reserved at once from an id allocator. Ids which remain in
+     * the block of a loader are not used by other loaders, so larger blocks reduce the number of
+     * allocator calls at the cost of gaps between the ids of different loads. If not set, blocks
+     * of 1024 ids are reserved.
      *
-     * @param antlrInputStream ANTLR input stream
-     * @return GDL handler
+     * @param idBlockSize number of ids per block
+     * @return builder
      */
-    private GDLHandler build(ANTLRInputStream antlrInputStream) {
-      if (graphLabel == null) {
-        throw new IllegalArgumentException("Graph label must not be null.");
-      }
-      if (vertexLabel == null) {
-        throw new IllegalArgumentException("Vertex label must not be null.");
+    public Builder setIdBlockSize(int idBlockSize) {
+      if (idBlockSize <= 0) {
+        throw new IllegalArgumentException("Id block size must be positive.");
+      }
+      this.idBlockSize = idBlockSize;
+      return this;
+    }
+
+    /**
+     * Set the error handler strategy for ANTLR. If not set, a new {@link DefaultErrorStrategy} is
+     * used for each parse.
+     *
+     * The given strategy is shared by all parses of this builder, i.e. by concurrent builds and
+     * by included files, which are parsed concurrently. Strategies which keep recovery state,
+     * like {@link DefaultErrorStrategy}, should be set using
+     * {@link #setErrorStrategyFactory(Supplier)} instead.
+     *
+     * @param errorStrategy ANTLR error strategy
+     * @return builder
+     */
+    public Builder setErrorStrategy(ANTLRErrorStrategy errorStrategy) {
+      this.errorStrategyFactory = errorStrategy != null ? () -> errorStrategy : null;
+      return this;
+    }
+
+    /**
+     * Set the factory which creates the error handler strategy for ANTLR. A new strategy is
+     * created for each parse, so stateful strategies can be used by concurrent builds.
+     *
+     * @param errorStrategyFactory ANTLR error strategy factory (must not be {@code null})
+     * @return builder
+     */
+    public Builder setErrorStrategyFactory(
+      Supplier<? extends ANTLRErrorStrategy> errorStrategyFactory) {
+      this.errorStrategyFactory = errorStrategyFactory;
+      return this;
+    }
+
+    /**
+     * Enable two-stage parsing.
+     *
+     * Scripts are parsed using the SLL prediction mode first, which is significantly faster than
+     * full LL prediction, but may fail for valid input. Only if SLL parsing fails, the script is
+     * parsed again using LL prediction and the configured error strategy. The result is the same
+     * as without two-stage parsing. Use {@link #getParseStatistics()} to see how often the
+     * fallback is used.
+     *
+     * Two-stage parsing does not apply to the stream methods, which process statements while
+     * parsing.
+     *
+     * @return builder
+     */
+    public Builder enableTwoStageParsing() {
+      this.useTwoStageParsing = true;
+      return this;
+    }
+
+    /**
+     * Disable two-stage parsing.
+     *
+     * @return builder
+     */
+    public Builder disableTwoStageParsing() {
+      this.useTwoStageParsing = false;
+      return this;
+    }
+
+    /**
+     * Enable the parse cache.
+     *
+     * {@link #buildFromString(String)} and {@link #buildFromFile(String)} compute a hash of the
+     * script and the label settings. If a snapshot for that hash exists in the given directory, it
+     * is loaded instead of parsing the script. Otherwise, the script is parsed and its snapshot is
+     * stored. The result is the same as without cache, including the identifiers drawn from the id
+     * functions, as long as each element type has its own id function. Cached scripts are
+     * instantiated like templates, i.e. a function shared by several element types is called for
+     * all graphs first, then for all vertices and then for all edges, while parsing interleaves
+     * these calls. The least recently used snapshots are deleted if the cache exceeds its maximum
+     * size. Streams are always parsed, see {@link #buildFromStream(InputStream)}.
+     *
+     * @param directory cache directory, which is created if necessary (must not be {@code null}).
+     * @return builder
+     */
+    public Builder enableParseCache(String directory) {
+      if (directory == null) {
+        throw new IllegalArgumentException("Cache directory must not be null.");
+      }
+      this.parseCacheDirectory = directory;
+      return this;
+    }
+
+    /**
+     * Disable the parse cache.
+     *
+     * @return builder
+     */
+    public Builder disableParseCache() {
+      this.parseCacheDirectory = null;
+      return this;
+    }
+
+    /**
+     * Sets the maximum size of the parse cache. If not set, {@link #DEFAULT_PARSE_CACHE_SIZE} is
+     * used.
+     *
+     * @param parseCacheMaxSize maximum size in bytes
+     * @return builder
+     */
+    public Builder setParseCacheMaxSize(long parseCacheMaxSize) {
+      if (parseCacheMaxSize < 0) {
+        throw new IllegalArgumentException("Parse cache size must not be negative.");
+      }
+      this.parseCacheMaxSize = parseCacheMaxSize;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of prepared scripts cached by {@link #prepare(String)}. If not set,
+     * {@link #DEFAULT_PREPARED_CACHE_SIZE} is used.
+     *
+     * @param preparedCacheSize maximum number of cached scripts (0 disables caching)
+     * @return builder
+     */
+    public Builder setPreparedCacheSize(int preparedCacheSize) {
+      if (preparedCacheSize < 0) {
+        throw new IllegalArgumentException("Prepared cache size must not be negative.");
+      }
+      synchronized (preparedCache) {
+        this.preparedCacheSize = preparedCacheSize;
+        preparedCache.clear();
+      }
+      return this;
+    }
+
+    /**
+     * Sets the executor which parses the files referenced by {@code INCLUDE} statements. All
+     * files included by a script are parsed concurrently before the script is processed. If not
+     * set, the common fork-join pool is used.
+     *
+     * Include paths are relative to the directory of the including file, or to the working
+     * directory for strings and streams.
+     *
+     * @param includeExecutor executor for included files (must not be {@code null}).
+     * @return builder
+     */
+    public Builder setIncludeExecutor(Executor includeExecutor) {
+      this.includeExecutor = includeExecutor;
+      return this;
+    }
+
+    /**
+     * Enable off-heap property storage.
+     *
+     * Each handler stores the property values of its elements in direct byte buffers, which are
+     * not scanned by the garbage collector. Elements only hold the address of their values and
+     * decode them on every access, so modifying a value returned by
+     * {@link org.s1ck.gdl.model.Element#getProperties()}, e.g. a list, does not change the
+     * element. Values of unsupported types, such as unbound template parameters, stay on the heap.
+     *
+     * @return builder
+     */
+    public Builder enableOffHeapProperties() {
+      this.useOffHeapProperties = true;
+      return this;
+    }
+
+    /**
+     * Disable off-heap property storage.
+     *
+     * @return builder
+     */
+    public Builder disableOffHeapProperties() {
+      this.useOffHeapProperties = false;
+      return this;
+    }
+
+    /**
+     * Sets the size of the chunks which are allocated by the off-heap property store. If not set,
+     * {@link OffHeapPropertyStore#DEFAULT_CHUNK_SIZE} is used.
+     *
+     * @param offHeapChunkSize chunk size in bytes
+     * @return builder
+     */
+    public Builder setOffHeapChunkSize(int offHeapChunkSize) {
+      if (offHeapChunkSize <= 0) {
+        throw new IllegalArgumentException("Off-heap chunk size must be positive.");
+      }
+      this.offHeapChunkSize = offHeapChunkSize;
+      return this;
+    }
+
+    /**
+     * Enable lazy property values.
+     *
+     * Property literals are not parsed while loading. Elements keep references to the literal
+     * tokens in the source buffer instead and parse a value on its first access through
+     * {@link org.s1ck.gdl.model.Element#getProperties()}, which speeds up loading if only the
+     * topology is used. The source buffer is retained until all values have been accessed, so
+     * files are read into memory as a whole. Values are parsed while loading if they are stored
+     * off-heap or if the input is not buffered, e.g. when streaming a file.
+     *
+     * @return builder
+     */
+    public Builder enableLazyProperties() {
+      this.useLazyProperties = true;
+      return this;
+    }
+
+    /**
+     * Disable lazy property values.
+     *
+     * @return builder
+     */
+    public Builder disableLazyProperties() {
+      this.useLazyProperties = false;
+      return this;
+    }
+
+    /**
+     * Returns the counters for two-stage parsing, which are shared by this builder and all
+     * handlers created by it.
+     *
+     * @return parse statistics
+     */
+    public ParseStatistics getParseStatistics() {
+      return statistics;
+    }
+
+    /**
+     * Initialize GDL Handler from given ASCII String.
+     *
+     * @param asciiString GDL string (must not be {@code null}).
+     * @return GDL handler
+     */
+    public GDLHandler buildFromString(String asciiString) {
+      if (parseCacheDirectory != null) {
+        ParseCache cache = createParseCache();
+        String key = cache.key(getParseSettings(), asciiString.getBytes(StandardCharsets.UTF_8));
+        GDLHandler handler = loadCached(cache, key);
+        return handler != null ? handler : buildCached(new ANTLRInputStream(asciiString), cache, key);
+      }
+      ANTLRInputStream antlrInputStream = new ANTLRInputStream(asciiString);
+      return build(antlrInputStream);
+    }
+
+    /**
+     * Initializes GDL Handler from given input stream.
+     *
+     * Gzip-compressed input is detected by its header and decompressed while parsing, without
+     * holding the decompressed content in memory as a whole. The parse cache is not used, since
+     * the cache key can only be computed after reading the whole stream.
+     *
+     * @param stream InputStream (must not be {@code null}).
+     * @return GDL handler
+     * @throws IOException
+     */
+    public GDLHandler buildFromStream(InputStream stream) throws IOException {
+      InputStream input = stream.markSupported() ? stream : new BufferedInputStream(stream);
+      if (GzipCharStream.isCompressed(input)) {
+        // lazy values refer to the source, so it needs to be buffered
+        return build(useLazyProperties ?
+          new ANTLRInputStream(new GZIPInputStream(input)) : new GzipCharStream(input));
+      }
+      ANTLRInputStream antlrInputStream = new ANTLRInputStream(input);
+      return build(antlrInputStream);
+    }
+
+    /**
+     * Initializes GDL Handler from given file.
+     *
+     * The file is read through memory-mapped windows, i.e. its characters are never copied into
+     * the heap as a whole. The parse tree still holds every token of the script, so the memory
+     * used while loading grows with the file size. Use
+     * {@link #streamFromFile(String, GDLElementSink)} to parse large files with a bounded token
+     * buffer. Gzip-compressed files are detected by their header and decompressed while parsing.
+     *
+     * @param fileName GDL file (must not be {@code null}).
+     * @return GDL handler
+     * @throws IOException if the file cannot be read
+     */
+    public GDLHandler buildFromFile(String fileName) throws IOException {
+      if (parseCacheDirectory != null) {
+        ParseCache cache = createParseCache();
+        String key = cache.key(getParseSettings(), Paths.get(fileName));
+        GDLHandler handler = loadCached(cache, key);
+        return handler != null ? handler :
+          readFile(fileName, charStream -> buildCached(charStream, cache, key));
+      }
+      return useLazyProperties ? build(bufferFile(fileName)) : readFile(fileName, this::build);
+    }
+
+    /**
+     * Initializes GDL Handler from given ASCII String on the given executor.
+     *
+     * The settings of this builder must not be changed until the returned future is completed.
+     * Concurrent builds draw their ids from the same id functions, so the id functions need to be
+     * thread-safe (like the default ones). A strategy set by
+     * {@link #setErrorStrategy(ANTLRErrorStrategy)} is shared by concurrent builds as well, so it
+     * needs to be stateless or thread-safe, see {@link #setErrorStrategyFactory(Supplier)}.
+     *
+     * @param asciiString GDL string (must not be {@code null}).
+     * @param executor executor which runs lexing, parsing and loading (must not be {@code null}).
+     * @return future GDL handler
+     */
+    public CompletableFuture<GDLHandler> buildFromStringAsync(String asciiString,
+      Executor executor) {
+      if (asciiString == null) {
+        throw new IllegalArgumentException("AsciiString must not be null.");
+      }
+      if (executor == null) {
+        throw new IllegalArgumentException("Executor must not be null.");
+      }
+      return CompletableFuture.supplyAsync(() -> buildFromString(asciiString), executor);
+    }
+
+    /**
+     * Initializes GDL Handler from given input stream on the given executor. The stream is read
+     * by the executor, but not closed.
+     *
+     * @param stream InputStream (must not be {@code null}).
+     * @param executor executor which runs reading, parsing and loading (must not be {@code null}).
+     * @return future GDL handler, which completes exceptionally with an {@link IOException} if
+     *         the stream cannot be read
+     * @see #buildFromStringAsync(String, Executor)
+     */
+    public CompletableFuture<GDLHandler> buildFromStreamAsync(InputStream stream,
+      Executor executor) {
+      if (stream == null) {
+        throw new IllegalArgumentException("InputStream must not be null.");
+      }
+      if (executor == null) {
+        throw new IllegalArgumentException("Executor must not be null.");
+      }
+      return CompletableFuture.supplyAsync(() -> {
+        try {
+          return buildFromStream(stream);
+        } catch (IOException e) {
+          throw new CompletionException(e);
+        }
+      }, executor);
+    }
+
+    /**
+     * Initializes GDL Handler from given file on the given executor.
+     *
+     * @param fileName GDL file (must not be {@code null}).
+     * @param executor executor which runs reading, parsing and loading (must not be {@code null}).
+     * @return future GDL handler, which completes exceptionally with an {@link IOException} if
+     *         the file cannot be read
+     * @see #buildFromStringAsync(String, Executor)
+     */
+    public CompletableFuture<GDLHandler> buildFromFileAsync(String fileName, Executor executor) {
+      if (fileName == null) {
+        throw new IllegalArgumentException("File name must not be null.");
+      }
+      if (executor == null) {
+        throw new IllegalArgumentException("Executor must not be null.");
+      }
+      return CompletableFuture.supplyAsync(() -> {
+        try {
+          return buildFromFile(fileName);
+        } catch (IOException e) {
+          throw new CompletionException(e);
+        }
+      }, executor);
+    }
+
+    /**
+     * Initializes GDL Handler from given file using multiple threads for parsing.
+     *
+     * The file is split into chunks at top-level statement boundaries, which are lexed and
+     * parsed concurrently. The parse trees are processed in file order afterwards, so the resulting
+     * elements, identifiers and variable bindings are the same as for {@link #buildFromFile(String)}.
+     * Chunks with syntax errors are parsed again on the calling thread using the configured error
+     * strategy. Queries are always parsed by a single thread.
+     *
+     * @param fileName GDL file (must not be {@code null}).
+     * @param threads number of parser threads
+     * @return GDL handler
+     * @throws IOException if the file cannot be read
+     */
+    public GDLHandler buildFromFileParallel(String fileName, int threads) throws IOException {
+      if (threads < 1) {
+        throw new IllegalArgumentException("Number of threads must be positive.");
+      }
+      String input = new String(Files.readAllBytes(Paths.get(fileName)), Charset.defaultCharset());
+      return buildParallel(input, fileName, threads);
+    }
+
+    /**
+     * Initializes GDL Handler from a snapshot written by {@link GDLHandler#writeSnapshot}.
+     *
+     * The snapshot is loaded without lexing or parsing. Elements keep the identifiers they had
+     * when the snapshot was written, the id functions of this builder are only used for strings
+     * appended to the handler. Default id functions and {@link ContinuousId} instances are moved
+     * past the largest identifier of the snapshot, so appended elements get new identifiers.
+     * Other id functions and allocators must not return identifiers of the snapshot.
+     *
+     * The stream is read up to the end of the snapshot and not beyond, so it can contain further
+     * data. It is not buffered by this method, i.e. unbuffered sources like files should be
+     * wrapped in a {@link BufferedInputStream}.
+     *
+     * @param stream snapshot stream, which is not closed (must not be {@code null}).
+     * @return GDL handler
+     * @throws IOException if the stream cannot be read or does not contain a valid snapshot
+     */
+    public GDLHandler buildFromSnapshot(InputStream stream) throws IOException {
+      if (stream == null) {
+        throw new IllegalArgumentException("InputStream must not be null.");
+      }
+      checkArguments();
+
+      GDLLoader loader = createLoader();
+      GDLSnapshot.read(stream, loader);
+      skipLoadedIds(nextGraphId, graphIdAllocator, loader.getGraphs());
+      skipLoadedIds(nextVertexId, vertexIdAllocator, loader.getVertices());
+      skipLoadedIds(nextEdgeId, edgeIdAllocator, loader.getEdges());
+      return createHandler(loader);
+    }
+
+    /**
+     * Parses the given GDL string once and returns a template which can be instantiated many
+     * times using {@link #buildFromTemplate(GDLTemplate)}.
+     *
+     * Labels and the error strategy are taken from the current settings. The id functions are
+     * applied when the template is instantiated.
+     *
+     * @param asciiString GDL string (must not be {@code null}).
+     * @return GDL template
+     */
+    public GDLTemplate compileTemplate(String asciiString) {
+      if (asciiString == null) {
+        throw new IllegalArgumentException("AsciiString must not be null.");
+      }
+      checkArguments();
+
+      GDLLexer lexer = createLexer(new ANTLRInputStream(asciiString));
+      GDLParser parser = new GDLParser(new CommonTokenStream(lexer));
+
+      GDLLoader loader = createTemplateLoader();
+      GDLParser.DatabaseContext tree = parse(parser, errorStrategyFactory.get(), useTwoStageParsing, statistics);
+      loader.getIncludeResolver().resolve(tree, null);
+      new ParseTreeWalker().walk(loader, tree);
+      return new GDLTemplate(loader);
+    }
+
+    /**
+     * Initializes GDL Handler from a compiled template without parsing the script again.
+     *
+     * The result is the same as calling {@link #buildFromString(String)} with the script of the
+     * template, using the id functions of this builder, as long as each element type has its own
+     * id function. A function shared by several element types is called for all graphs first,
+     * then for all vertices and then for all edges, while parsing interleaves these calls.
+     * Templates containing parameters need to be bound using {@link PreparedGDL#bind(Map)}
+     * instead.
+     *
+     * @param template GDL template (must not be {@code null}).
+     * @return GDL handler
+     * @throws UnboundParameterException if the template contains parameters
+     */
+    public GDLHandler buildFromTemplate(GDLTemplate template) {
+      return buildFromTemplate(template, Collections.emptyMap());
+    }
+
+    /**
+     * Parses the given GDL string once and returns a prepared script, which binds parameters like
+     * {@code $name} in property values and predicates to values without parsing the script again.
+     *
+     * Prepared scripts are cached by this builder, i.e. preparing the same script again with the
+     * same label settings does not parse it again. Handlers created by the prepared script use the
+     * id functions of this builder.
+     *
+     * @param asciiString GDL string (must not be {@code null}).
+     * @return prepared GDL script
+     */
+    public PreparedGDL prepare(String asciiString) {
+      if (asciiString == null) {
+        throw new IllegalArgumentException("AsciiString must not be null.");
+      }
+      List<Object> key = Arrays.asList(asciiString, getParseSettings());
+      synchronized (preparedCache) {
+        PreparedGDL prepared = preparedCache.get(key);
+        if (prepared == null) {
+          prepared = new PreparedGDL(this, compileTemplate(asciiString));
+          preparedCache.put(key, prepared);
+        }
+        return prepared;
+      }
+    }
+
+    /**
+     * Instantiates a template using the given parameter values.
+     *
+     * @param template GDL template (must not be {@code null}).
+     * @param parameters parameter values (must not be {@code null}).
+     * @return GDL handler
+     * @throws UnboundParameterException if there is no value for a parameter of the template
+     */
+    GDLHandler buildFromTemplate(GDLTemplate template, Map<String, ?> parameters) {
+      if (template == null) {
+        throw new IllegalArgumentException("Template must not be null.");
+      }
+      if (parameters == null) {
+        throw new IllegalArgumentException("Parameters must not be null.");
+      }
+      checkArguments();
+
+      GDLLoader loader = createLoader();
+      template.instantiate(loader, parameters);
+      return createHandler(loader);
+    }
+
+    /**
+     * Parses the given GDL string and passes all elements to the given sink while parsing.
+     *
+     * @param asciiString GDL string (must not be {@code null}).
+     * @param sink element sink (must not be {@code null}).
+     * @return GDL handler which only holds elements bound to user-defined variables
+     * @see #streamFromStream(InputStream, GDLElementSink)
+     */
+    public GDLHandler streamFromString(String asciiString, GDLElementSink sink) {
+      return stream(new ANTLRInputStream(asciiString), sink);
+    }
+
+    /**
+     * Parses the given input stream and passes all elements to the given sink while parsing.
+     *
+     * In contrast to {@link #buildFromStream(InputStream)}, neither the input, nor the parse tree,
+     * nor the created elements are held in memory as a whole. Each statement is processed and
+     * discarded as soon as it has been parsed. The returned handler only provides the elements
+     * bound to user-defined variables and the predicates of a query. Gzip-compressed input is
+     * detected by its header and decompressed on demand. Files referenced by {@code INCLUDE}
+     * statements are parsed as a whole when the statement is reached, relative to the working
+     * directory, and their elements are passed to the sink as well.
+     *
+     * @param stream InputStream (must not be {@code null}).
+     * @param sink element sink (must not be {@code null}).
+     * @return GDL handler which only holds elements bound to user-defined variables
+     * @throws IOException if the stream cannot be read
+     */
+    public GDLHandler streamFromStream(InputStream stream, GDLElementSink sink)
+      throws IOException {
+      InputStream input = stream.markSupported() ? stream : new BufferedInputStream(stream);
+      return stream(GzipCharStream.isCompressed(input) ?
+        new GzipCharStream(input) : new UnbufferedCharStream(input), sink);
+    }
+
+    /**
+     * Parses the given file and passes all elements to the given sink while parsing. Include
+     * paths are relative to the given file.
+     *
+     * @param fileName GDL file (must not be {@code null}).
+     * @param sink element sink (must not be {@code null}).
+     * @return GDL handler which only holds elements bound to user-defined variables
+     * @throws IOException if the file cannot be read
+     * @see #streamFromStream(InputStream, GDLElementSink)
+     */
+    public GDLHandler streamFromFile(String fileName, GDLElementSink sink) throws IOException {
+      return readFile(fileName, charStream -> stream(charStream, sink));
+    }
+
+    /**
+     * Creates GDL Handler from a cache entry.
+     *
+     * @param cache parse cache
+     * @param key cache key of the script
+     * @return GDL handler or {@code null} if there is no valid cache entry
+     */
+    private GDLHandler loadCached(ParseCache cache, String key) {
+      checkArguments();
+
+      GDLLoader templateLoader = createTemplateLoader();
+      if (!cache.load(key, templateLoader)) {
+        return null;
+      }
+      GDLLoader loader = createLoader();
+      new GDLTemplate(templateLoader).instantiate(loader, null);
+      return createHandler(loader);
+    }
+
+    /**
+     * Parses the given script, stores the result in the cache and creates GDL Handler.
+     *
+     * @param charStream ANTLR character stream
+     * @param cache parse cache
+     * @param key cache key of the script
+     * @return GDL handler
+     */
+    private GDLHandler buildCached(CharStream charStream, ParseCache cache, String key) {
+      checkArguments();
+
+      GDLLexer lexer = createLexer(charStream);
+      GDLParser parser = new GDLParser(new CommonTokenStream(lexer));
+
+      GDLLoader templateLoader = createTemplateLoader();
+      GDLParser.DatabaseContext tree = parse(parser, errorStrategyFactory.get(), useTwoStageParsing, statistics);
+      templateLoader.getIncludeResolver().resolve(tree, getSourcePath(charStream));
+      new ParseTreeWalker().walk(templateLoader, tree);
+      // the cache key does not cover included files
+      if (templateLoader.getIncludeResolver().isEmpty()) {
+        cache.store(key, templateLoader);
+      }
+
+      GDLLoader loader = createLoader();
+      new GDLTemplate(templateLoader).instantiate(loader, null);
+      return createHandler(loader);
+    }
+
+    /**
+     * Checks valid input and creates GDL Handler.
+     *
+     * @param charStream ANTLR character stream
+     * @return GDL handler
+     */
+    private GDLHandler build(CharStream charStream) {
+      checkArguments();
+
+      GDLLexer lexer = createLexer(charStream);
+      GDLParser parser = new GDLParser(new CommonTokenStream(lexer));
+
+      GDLLoader loader = createLoader();
+      GDLParser.DatabaseContext tree = parse(parser, errorStrategyFactory.get(), useTwoStageParsing, statistics);
+      loader.getIncludeResolver().resolve(tree, getSourcePath(charStream));
+      new ParseTreeWalker().walk(loader, tree);
+      return createHandler(loader);
+    }
+
+    /**
+     * Checks valid input, parses chunks of the given script concurrently and creates GDL Handler.
+     *
+     * @param input GDL script
+     * @param sourceName name of the input used in error messages
+     * @param threads number of parser threads
+     * @return GDL handler
+     */
+    private GDLHandler buildParallel(String input, String sourceName, int threads) {
+      checkArguments();
+
+      List<StatementSplitter.Chunk> chunks =
+        StatementSplitter.split(input, threads * CHUNKS_PER_THREAD);
+      GDLLoader loader = createLoader();
+      ParseTreeWalker walker = new ParseTreeWalker();
+
+      ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, chunks.size()));
+      try {
+        List<Future<GDLParser.DatabaseContext>> trees = new ArrayList<>(chunks.size());
+        for (StatementSplitter.Chunk chunk : chunks) {
+          trees.add(executor.submit(() -> parseChunk(input, sourceName, chunk, true)));
+        }
+        // process chunks in input order while later chunks are still being parsed
+        for (int i = 0; i < chunks.size(); i++) {
+          GDLParser.DatabaseContext tree;
+          try {
+            tree = trees.get(i).get();
+          } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof ParseCancellationException)) {
+              throw e.getCause() instanceof RuntimeException ?
+                (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+            }
+            tree = parseChunk(input, sourceName, chunks.get(i), false);
+          }
+          trees.set(i, null);
+          loader.getIncludeResolver().resolve(tree, Paths.get(sourceName));
+          walker.walk(loader, tree);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while parsing " + sourceName, e);
+      } finally {
+        executor.shutdownNow();
+      }
+      return createHandler(loader);
+    }
+
+    /**
+     * Parses a chunk of a GDL script.
+     *
+     * @param input GDL script
+     * @param sourceName name of the input used in error messages
+     * @param chunk chunk to parse
+     * @param bail true, iff parsing shall be cancelled on the first syntax error without
+     *             reporting it, false to use the configured error strategy
+     * @return parse tree
+     */
+    private GDLParser.DatabaseContext parseChunk(String input, String sourceName,
+      StatementSplitter.Chunk chunk, boolean bail) {
+      ANTLRInputStream antlrInputStream =
+        new ANTLRInputStream(input.substring(chunk.start, chunk.end));
+      antlrInputStream.name = sourceName;
+
+      GDLLexer lexer = new GDLLexer(antlrInputStream);
+      lexer.setLine(chunk.line);
+      lexer.setCharPositionInLine(chunk.charPositionInLine);
+      GDLParser parser = new GDLParser(new CommonTokenStream(lexer));
+      if (bail) {
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(BAIL_ERROR_LISTENER);
+        parser.removeErrorListeners();
+        return parse(parser, new BailErrorStrategy(), useTwoStageParsing, statistics);
+      }
+      return parse(parser, errorStrategyFactory.get(), false, statistics);
+    }
+
+    /**
+     * Parses a file referenced by an {@code INCLUDE} statement. Gzip-compressed files are
+     * decompressed like the files of {@link #buildFromFile(String)}.
+     *
+     * @param file GDL file
+     * @param bail true, iff parsing shall be cancelled on the first syntax error without
+     *             reporting it, false to use the configured error strategy
+     * @return parse tree
+     * @throws IOException if the file cannot be read
+     */
+    private GDLParser.DatabaseContext parseInclude(Path file, boolean bail) throws IOException {
+      return readFile(file.toString(), charStream -> {
+        GDLLexer lexer = createLexer(charStream);
+        GDLParser parser = new GDLParser(new CommonTokenStream(lexer));
+        if (bail) {
+          lexer.removeErrorListeners();
+          lexer.addErrorListener(BAIL_ERROR_LISTENER);
+          parser.removeErrorListeners();
+          return parse(parser, new BailErrorStrategy(), useTwoStageParsing, statistics);
+        }
+        return parse(parser, errorStrategyFactory.get(), false, statistics);
+      });
+    }
+
+    /**
+     * Opens the given file and applies the given function to its content. Gzip-compressed files
+     * are decompressed on demand, other files are memory-mapped.
+     *
+     * @param fileName GDL file
+     * @param function function which processes the character stream
+     * @param <T> result type
+     * @return function result
+     * @throws IOException if the file cannot be read
+     */
+    private static <T> T readFile(String fileName, Function<CharStream, T> function)
+      throws IOException {
+      if (GzipCharStream.isCompressed(fileName)) {
+        try (GzipCharStream charStream = new GzipCharStream(fileName)) {
+          return function.apply(charStream);
+        }
+      }
+      try (MappedFileCharStream charStream = new MappedFileCharStream(fileName)) {
+        return function.apply(charStream);
+      }
+    }
+
+    /**
+     * Reads a file into memory. Gzip-compressed files are decompressed.
+     *
+     * @param fileName GDL file
+     * @return buffered character stream
+     * @throws IOException if the file cannot be read
+     */
+    private static CharStream bufferFile(String fileName) throws IOException {
+      try (InputStream inputStream = Files.newInputStream(Paths.get(fileName))) {
+        ANTLRInputStream charStream = new ANTLRInputStream(GzipCharStream.isCompressed(fileName) ?
+          new GZIPInputStream(inputStream) : inputStream);
+        charStream.name = fileName;
+        return charStream;
+      }
+    }
+
+    /**
+     * Returns the file a character stream reads from.
+     *
+     * @param charStream ANTLR character stream
+     * @return file or {@code null} if the stream does not read from a file
+     */
+    private static Path getSourcePath(CharStream charStream) {
+      String sourceName = charStream.getSourceName();
+      return sourceName == null || IntStream.UNKNOWN_SOURCE_NAME.equals(sourceName) ?
+        null : Paths.get(sourceName);
+    }
+
+    /**
+     * Checks valid input and parses the given character stream without building a parse tree
+     * for the whole script.
+     *
+     * @param charStream ANTLR character stream
+     * @param sink element sink
+     * @return GDL handler
+     */
+    private GDLHandler stream(CharStream charStream, GDLElementSink sink) {
+      checkArguments();
+      if (sink == null) {
+        throw new IllegalArgumentException("Element sink must not be null.");
+      }
+
+      GDLLexer lexer = createLexer(charStream);
+      GDLParser parser = new GDLParser(new UnbufferedTokenStream<>(lexer));
+      parser.setErrorHandler(errorStrategyFactory.get());
+
+      GDLLoader loader = createLoader();
+      loader.setElementSink(sink);
+      parser.addParseListener(new StatementListener(loader, getSourcePath(charStream)));
+      parser.database();
+      return createHandler(loader);
+    }
+
+    /**
+     * Creates a lexer for the given character stream.
+     *
+     * @param charStream ANTLR character stream
+     * @return GDL lexer
+     */
+    private static GDLLexer createLexer(CharStream charStream) {
+      GDLLexer lexer = new GDLLexer(charStream);
+      if (charStream instanceof UnbufferedCharStream) {
+        // tokens must not refer to the character stream which only buffers the current token
+        lexer.setTokenFactory(new CommonTokenFactory(true));
+      }
+      return lexer;
+    }
+
+    /**
+     * Checks if all settings are valid.
+     */
+    private void checkArguments() {
+      if (graphLabel == null) {
+        throw new IllegalArgumentException("Graph label must not be null.");
+      }
+      if (vertexLabel == null) {
+        throw new IllegalArgumentException("Vertex label must not be null.");
       }
       if (edgeLabel == null) {
         throw new IllegalArgumentException("Edge label must not be null.");
       }
-      if (errorStrategy == null) {
+      if (errorStrategyFactory == null) {
         throw new IllegalArgumentException("Error handler must not be null.");
       }
-      if (nextGraphId == null) {
+      if (nextGraphId == null && graphIdAllocator == null) {
         throw new IllegalArgumentException("Graph id function must not be null.");
       }
-      if (nextVertexId == null) {
+      if (nextVertexId == null && vertexIdAllocator == null) {
         throw new IllegalArgumentException("Vertex id function must not be null.");
       }
-      if (nextEdgeId == null) {
+      if (nextEdgeId == null && edgeIdAllocator == null) {
         throw new IllegalArgumentException("Edge id function must not be null.");
       }
+      if (includeExecutor == null) {
+        throw new IllegalArgumentException("Include executor must not be null.");
+      }
+    }
 
-      GDLLexer lexer = new GDLLexer(antlrInputStream);
-      GDLParser parser = new GDLParser(new CommonTokenStream(lexer));
-      parser.setErrorHandler(errorStrategy);
+    /**
+     * Creates a new handler for the given loader using the current settings.
+     *
+     * @param loader GDL loader
+     * @return GDL handler
+     */
+    private GDLHandler createHandler(GDLLoader loader) {
+      return new GDLHandler(loader, errorStrategyFactory.get(), useTwoStageParsing, statistics);
+    }
+
+    /**
+     * Creates a new loader using the current settings and continuous ids starting at zero, i.e.
+     * template ids are dense and correspond to the creation order.
+     *
+     * @return GDL loader
+     */
+    private GDLLoader createTemplateLoader() {
+      GDLLoader loader = new GDLLoader(
+              graphLabel, vertexLabel, edgeLabel,
+              useDefaultGraphLabel, useDefaultVertexLabel, useDefaultEdgeLabel,
+              new ContinuousId(), new ContinuousId(), new ContinuousId()
+      );
+      loader.setIncludeResolver(new IncludeResolver(this::parseInclude, includeExecutor));
+      return loader;
+    }
+
+    /**
+     * Creates the parse cache for the current settings.
+     *
+     * @return parse cache
+     */
+    private ParseCache createParseCache() {
+      return new ParseCache(Paths.get(parseCacheDirectory), parseCacheMaxSize);
+    }
+
+    /**
+     * Returns the settings which influence the result of parsing a script.
+     *
+     * @return parse settings
+     */
+    private List<Object> getParseSettings() {
+      return Arrays.asList(graphLabel, vertexLabel, edgeLabel,
+        useDefaultGraphLabel, useDefaultVertexLabel, useDefaultEdgeLabel);
+    }
+
+    /**
+     * Returns the id supplier of a new loader.
+     *
+     * @param supplier configured id supplier
+     * @param allocator configured id allocator or {@code null}
+     * @return supplier which reserves blocks from the allocator if set, the given supplier
+     *         otherwise
+     */
+    private LongSupplier createIdSupplier(LongSupplier supplier, IdAllocator allocator) {
+      return allocator != null ? new IdBlockSupplier(allocator, idBlockSize) : supplier;
+    }
+
+    /**
+     * Moves a continuous id function past the identifiers of loaded elements. Ids are reserved
+     * lazily, so loaders which have been created already draw from the moved function.
+     *
+     * @param supplier configured id supplier
+     * @param allocator configured id allocator or {@code null}
+     * @param elements loaded elements
+     */
+    private static void skipLoadedIds(LongSupplier supplier, IdAllocator allocator,
+      Collection<? extends Element> elements) {
+      Object ids = allocator != null ? allocator : supplier;
+      if (ids instanceof ContinuousId && !elements.isEmpty()) {
+        ((ContinuousId) ids).skipPast(elements.stream().mapToLong(Element::getId).max().getAsLong());
+      }
+    }
 
+    /**
+     * Creates a new loader using the current settings.
+     *
+     * @return GDL loader
+     */
+    private GDLLoader createLoader() {
       GDLLoader loader = new GDLLoader(
               graphLabel, vertexLabel, edgeLabel,
               useDefaultGraphLabel, useDefaultVertexLabel, useDefaultEdgeLabel,
-              nextGraphId, nextVertexId, nextEdgeId
+              createIdSupplier(nextGraphId, graphIdAllocator),
+              createIdSupplier(nextVertexId, vertexIdAllocator),
+              createIdSupplier(nextEdgeId, edgeIdAllocator)
       );
-      new ParseTreeWalker().walk(loader, parser.database());
-      return new GDLHandler(loader);
+      loader.setIncludeResolver(new IncludeResolver(this::parseInclude, includeExecutor));
+      if (useOffHeapProperties) {
+        loader.setPropertyStore(new OffHeapPropertyStore(offHeapChunkSize));
+      }
+      loader.setLazyProperties(useLazyProperties);
+      return loader;
     }
   }
 }
@@ -17,16 +17,21 @@
 package org.s1ck.gdl;
 
 import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import org.s1ck.gdl.exceptions.DuplicateDeclarationException;
 import org.s1ck.gdl.exceptions.InvalidReferenceException;
 import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Element;
 import org.s1ck.gdl.model.Graph;
 import org.s1ck.gdl.model.GraphElement;
+import org.s1ck.gdl.model.OffHeapPropertyStore;
+import org.s1ck.gdl.model.SymbolDictionary;
 import org.s1ck.gdl.model.Vertex;
 import org.s1ck.gdl.model.comparables.ComparableExpression;
 import org.s1ck.gdl.model.comparables.ElementSelector;
 import org.s1ck.gdl.model.comparables.Literal;
+import org.s1ck.gdl.model.comparables.Parameter;
 import org.s1ck.gdl.model.comparables.PropertySelector;
 import org.s1ck.gdl.model.predicates.Predicate;
 import org.s1ck.gdl.model.predicates.booleans.And;
@@ -37,8 +42,9 @@ import org.s1ck.gdl.model.predicates.expressions.Comparison;
 import org.s1ck.gdl.utils.Comparator;
 import org.s1ck.gdl.utils.ContinuousId;
 
+import java.nio.file.Path;
 import java.util.*;
-import java.util.function.Supplier;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
 class GDLLoader extends GDLBaseListener {
@@ -49,15 +55,20 @@ class GDLLoader extends GDLBaseListener {
   private final Map<String, Edge> userEdgeCache;
 
   // used to cache elements which are assigned to auto-generated variables
-  private final Map<String, Graph> autoGraphCache;
-  private final Map<String, Vertex> autoVertexCache;
-  private final Map<String, Edge> autoEdgeCache;
+  private final AnonymousCache<Graph> autoGraphCache;
+  private final AnonymousCache<Vertex> autoVertexCache;
+  private final AnonymousCache<Edge> autoEdgeCache;
 
   // used to hold the final database elements
   private final Set<Graph> graphs;
   private final Set<Vertex> vertices;
   private final Set<Edge> edges;
 
+  // indexes all elements of the database by id, label and graph
+  private final ElementIndex<Graph> graphIndex;
+  private final ElementIndex<Vertex> vertexIndex;
+  private final ElementIndex<Edge> edgeIndex;
+
   // stores the predicates tree for that query
   private Predicate predicates;
 
@@ -69,10 +80,13 @@ class GDLLoader extends GDLBaseListener {
   private final String defaultVertexLabel;
   private final String defaultEdgeLabel;
 
+  // encodes labels and property keys of all elements
+  private final SymbolDictionary symbols = new SymbolDictionary();
+
   // used to generate sequential ids
-  private final Supplier<Long> nextGraphId;
-  private final Supplier<Long> nextVertexId;
-  private final Supplier<Long> nextEdgeId;
+  private final LongSupplier nextGraphId;
+  private final LongSupplier nextVertexId;
+  private final LongSupplier nextEdgeId;
 
   // flag that tells if the parser is inside a logical graph
   private boolean inGraph = false;
@@ -86,10 +100,30 @@ class GDLLoader extends GDLBaseListener {
   // used to keep track of filter that are yet to be handled
   private Deque<Predicate> currentPredicates;
 
-  // used to generate variable names if none is given
-  private static final String ANONYMOUS_GRAPH_VARIABLE = "__g%d";
-  private static final String ANONYMOUS_VERTEX_VARIABLE = "__v%d";
-  private static final String ANONYMOUS_EDGE_VARIABLE = "__e%d";
+  // receives new elements per statement instead of holding them in the database, if set
+  private GDLElementSink sink;
+
+  // provides the parse trees of included files
+  private IncludeResolver includeResolver;
+
+  // files which have already been processed, each file is processed only once
+  private final Set<Path> includedFiles = new HashSet<>();
+
+  // holds the property values of new elements off-heap, if set
+  private OffHeapPropertyStore propertyStore;
+
+  // parse property values on first access instead of while loading
+  private boolean useLazyProperties;
+
+  // used to buffer new elements until the current statement has been processed
+  private final List<Graph> pendingGraphs;
+  private final List<Vertex> pendingVertices;
+  private final List<Edge> pendingEdges;
+
+  // prefixes of the variables generated from the element id if none is given
+  static final String ANONYMOUS_GRAPH_PREFIX = "__g";
+  static final String ANONYMOUS_VERTEX_PREFIX = "__v";
+  static final String ANONYMOUS_EDGE_PREFIX = "__e";
 
   /**
    * Initializes a new GDL Loader.
@@ -118,7 +152,7 @@ class GDLLoader extends GDLBaseListener {
    */
   GDLLoader(String defaultGraphLabel, String defaultVertexLabel, String defaultEdgeLabel,
             boolean useDefaultGraphLabel, boolean useDefaultVertexLabel, boolean useDefaultEdgeLabel,
-            Supplier<Long> nextGraphId, Supplier<Long> nextVertexId, Supplier<Long> nextEdgeId) {
+            LongSupplier nextGraphId, LongSupplier nextVertexId, LongSupplier nextEdgeId) {
 
     this.useDefaultGraphLabel = useDefaultGraphLabel;
     this.useDefaultVertexLabel = useDefaultVertexLabel;
@@ -136,15 +170,88 @@ class GDLLoader extends GDLBaseListener {
     userVertexCache = new HashMap<>();
     userEdgeCache = new HashMap<>();
 
-    autoGraphCache = new HashMap<>();
-    autoVertexCache = new HashMap<>();
-    autoEdgeCache = new HashMap<>();
+    autoGraphCache = new AnonymousCache<>(ANONYMOUS_GRAPH_PREFIX);
+    autoVertexCache = new AnonymousCache<>(ANONYMOUS_VERTEX_PREFIX);
+    autoEdgeCache = new AnonymousCache<>(ANONYMOUS_EDGE_PREFIX);
 
     graphs    = new HashSet<>();
     vertices  = new HashSet<>();
     edges     = new HashSet<>();
 
+    graphIndex = new ElementIndex<>();
+    vertexIndex = new ElementIndex<>();
+    edgeIndex = new ElementIndex<>();
+
     currentPredicates = new ArrayDeque<>();
+
+    pendingGraphs = new ArrayList<>();
+    pendingVertices = new ArrayList<>();
+    pendingEdges = new ArrayList<>();
+  }
+
+  /**
+   * Sets a sink which receives all newly created elements once the statement that created them
+   * has been processed (see {@link #flush()}).
+   *
+   * Emitted elements are not held by the loader. Only elements bound to user-defined variables
+   * are cached to resolve references in subsequent statements.
+   *
+   * @param sink element sink
+   */
+  void setElementSink(GDLElementSink sink) {
+    this.sink = sink;
+  }
+
+  /**
+   * Sets the resolver which provides the parse trees of included files.
+   *
+   * @param includeResolver include resolver
+   */
+  void setIncludeResolver(IncludeResolver includeResolver) {
+    this.includeResolver = includeResolver;
+  }
+
+  /**
+   * Sets the store which holds the property values of all elements added from now on.
+   *
+   * @param propertyStore off-heap property store or {@code null} to keep values on the heap
+   */
+  void setPropertyStore(OffHeapPropertyStore propertyStore) {
+    this.propertyStore = propertyStore;
+  }
+
+  /**
+   * Enables or disables lazy property values. If enabled, literals of buffered scripts are kept
+   * as references to their tokens and parsed on first access.
+   *
+   * @param useLazyProperties true, iff property values shall be parsed on first access
+   */
+  void setLazyProperties(boolean useLazyProperties) {
+    this.useLazyProperties = useLazyProperties;
+  }
+
+  /**
+   * Returns the resolver which provides the parse trees of included files.
+   *
+   * @return include resolver or {@code null} if includes are not supported
+   */
+  IncludeResolver getIncludeResolver() {
+    return includeResolver;
+  }
+
+  /**
+   * Emits all elements created since the last call to the element sink, if one is set.
+   */
+  void flush() {
+    if (sink == null) {
+      return;
+    }
+    pendingGraphs.forEach(sink::onGraph);
+    pendingVertices.forEach(sink::onVertex);
+    pendingEdges.forEach(sink::onEdge);
+    pendingGraphs.clear();
+    pendingVertices.clear();
+    pendingEdges.clear();
   }
 
   /**
@@ -201,6 +308,42 @@ class GDLLoader extends GDLBaseListener {
     return edges;
   }
 
+  /**
+   * Returns the index of all graphs in the database.
+   *
+   * @return graph index
+   */
+  ElementIndex<Graph> getGraphIndex() {
+    return graphIndex;
+  }
+
+  /**
+   * Returns the index of all vertices in the database.
+   *
+   * @return vertex index
+   */
+  ElementIndex<Vertex> getVertexIndex() {
+    return vertexIndex;
+  }
+
+  /**
+   * Returns the index of all edges in the database.
+   *
+   * @return edge index
+   */
+  ElementIndex<Edge> getEdgeIndex() {
+    return edgeIndex;
+  }
+
+  /**
+   * Returns the dictionary which encodes labels and property keys of all elements.
+   *
+   * @return symbol dictionary
+   */
+  SymbolDictionary getSymbolDictionary() {
+    return symbols;
+  }
+
     /**
      * Returns the predicates defined by the query.
      *
@@ -213,7 +356,7 @@ class GDLLoader extends GDLBaseListener {
    * Returns a cache that contains a mapping from user-defined variables used in the GDL script to
    * graph instances.
    *
-   * @return immutable graph cache
+   * @return unmodifiable view of the graph cache
    */
   Map<String, Graph> getGraphCache() {
     return getGraphCache(true, false);
@@ -225,7 +368,7 @@ class GDLLoader extends GDLBaseListener {
    * @param includeUserDefined include user-defined variables
    * @param includeAutoGenerated include auto-generated variables
    *
-   * @return immutable graph cache
+   * @return unmodifiable view of the graph cache
    */
   Map<String, Graph> getGraphCache(boolean includeUserDefined, boolean includeAutoGenerated) {
     return getCache(userGraphCache, autoGraphCache, includeUserDefined, includeAutoGenerated);
@@ -235,7 +378,7 @@ class GDLLoader extends GDLBaseListener {
    * Returns a cache that contains a mapping from user-defined variables used in the GDL script to
    * vertex instances.
    *
-   * @return immutable vertex cache
+   * @return unmodifiable view of the vertex cache
    */
   Map<String, Vertex> getVertexCache() {
     return getVertexCache(true, false);
@@ -247,7 +390,7 @@ class GDLLoader extends GDLBaseListener {
    * @param includeUserDefined include user-defined variables
    * @param includeAutoGenerated include auto-generated variables
    *
-   * @return immutable vertex cache
+   * @return unmodifiable view of the vertex cache
    */
   Map<String, Vertex> getVertexCache(boolean includeUserDefined, boolean includeAutoGenerated) {
     return getCache(userVertexCache, autoVertexCache, includeUserDefined, includeAutoGenerated);
@@ -257,7 +400,7 @@ class GDLLoader extends GDLBaseListener {
    * Returns a cache that contains a mapping from user-defined variables used in the GDL script to
    * edge instances.
    *
-   * @return immutable edge cache
+   * @return unmodifiable view of the edge cache
    */
   Map<String, Edge> getEdgeCache() {
     return getEdgeCache(true, false);
@@ -269,12 +412,42 @@ class GDLLoader extends GDLBaseListener {
    * @param includeUserDefined include user-defined variables
    * @param includeAutoGenerated include auto-generated variables
    *
-   * @return immutable edge cache
+   * @return unmodifiable view of the edge cache
    */
   Map<String, Edge> getEdgeCache(boolean includeUserDefined, boolean includeAutoGenerated) {
     return getCache(userEdgeCache, autoEdgeCache, includeUserDefined, includeAutoGenerated);
   }
 
+  /**
+   * Returns the graph bound to a user-defined or auto-generated variable.
+   *
+   * @param variable variable
+   * @return graph or {@code null} if the variable is unbound
+   */
+  Graph getGraph(String variable) {
+    return getCached(userGraphCache, autoGraphCache, variable);
+  }
+
+  /**
+   * Returns the vertex bound to a user-defined or auto-generated variable.
+   *
+   * @param variable variable
+   * @return vertex or {@code null} if the variable is unbound
+   */
+  Vertex getVertex(String variable) {
+    return getCached(userVertexCache, autoVertexCache, variable);
+  }
+
+  /**
+   * Returns the edge bound to a user-defined or auto-generated variable.
+   *
+   * @param variable variable
+   * @return edge or {@code null} if the variable is unbound
+   */
+  Edge getEdge(String variable) {
+    return getCached(userEdgeCache, autoEdgeCache, variable);
+  }
+
   private boolean isEmpty(List<GDLParser.LabelContext> label, GDLParser.PropertiesContext properties) {
     return (label == null || label.isEmpty()) && (properties == null || properties.property().isEmpty());
   }
@@ -303,12 +476,14 @@ class GDLLoader extends GDLBaseListener {
 
       if (variable != null) {
         userGraphCache.put(variable, g);
+        g.setVariable(variable);
       } else {
-        variable = String.format(ANONYMOUS_GRAPH_VARIABLE, g.getId());
-        autoGraphCache.put(variable, g);
+        g.setAnonymousVariable(ANONYMOUS_GRAPH_PREFIX);
+        if (sink == null) {
+          autoGraphCache.add(g);
+        }
       }
-      g.setVariable(variable);
-      graphs.add(g);
+      addGraph(g);
     }
     currentGraphId = g.getId();
   }
@@ -318,6 +493,28 @@ class GDLLoader extends GDLBaseListener {
     inGraph = false;
   }
 
+  /**
+   * Processes the statements of an included file as if they were part of the current script.
+   * Each file is processed only once, further includes of the same file are ignored.
+   *
+   * @param ctx include context
+   */
+  @Override
+  public void enterInclude(GDLParser.IncludeContext ctx) {
+    if (ctx.StringLiteral() == null) {
+      // the syntax error has already been reported
+      return;
+    }
+    Path file = includeResolver != null ? includeResolver.takeFile(ctx) : null;
+    if (file == null) {
+      throw new IllegalStateException("Include has not been resolved: " + ctx.getText());
+    }
+    // e.g. two included files include the same file
+    if (includedFiles.add(file)) {
+      ParseTreeWalker.DEFAULT.walk(this, includeResolver.takeTree(file));
+    }
+  }
+
   /**
    * When leaving a query context its save to add the pattern predicates to the filters
    *
@@ -325,10 +522,10 @@ class GDLLoader extends GDLBaseListener {
    */
   @Override
   public void exitQuery(GDLParser.QueryContext ctx) {
-    for(Vertex v : vertices) {
+    for(Vertex v : sink == null ? vertices : pendingVertices) {
       addPredicates(Predicate.fromGraphElement(v, getDefaultVertexLabel()));
     }
-    for(Edge e : edges) {
+    for(Edge e : sink == null ? edges : pendingEdges) {
       addPredicates(Predicate.fromGraphElement(e, getDefaultEdgeLabel()));
     }
   }
@@ -355,12 +552,14 @@ class GDLLoader extends GDLBaseListener {
 
       if (variable != null) {
         userVertexCache.put(variable, v);
+        v.setVariable(variable);
       } else {
-        variable = String.format(ANONYMOUS_VERTEX_VARIABLE, v.getId());
-        autoVertexCache.put(variable, v);
+        v.setAnonymousVariable(ANONYMOUS_VERTEX_PREFIX);
+        if (sink == null) {
+          autoVertexCache.add(v);
+        }
       }
-      v.setVariable(variable);
-      vertices.add(v);
+      addVertex(v);
     }
     updateGraphElement(v);
     setLastSeenVertex(v);
@@ -483,12 +682,14 @@ class GDLLoader extends GDLBaseListener {
 
       if (variable != null) {
         userEdgeCache.put(variable, e);
+        e.setVariable(variable);
       } else {
-        variable = String.format(ANONYMOUS_EDGE_VARIABLE, e.getId());
-        autoEdgeCache.put(variable, e);
+        e.setAnonymousVariable(ANONYMOUS_EDGE_PREFIX);
+        if (sink == null) {
+          autoEdgeCache.add(e);
+        }
       }
-      e.setVariable(variable);
-      edges.add(e);
+      addEdge(e);
     }
     updateGraphElement(e);
     setLastSeenEdge(e);
@@ -532,13 +733,13 @@ class GDLLoader extends GDLBaseListener {
    * @return new graph
    */
   private Graph initNewGraph(GDLParser.GraphContext graphContext) {
-    Graph g = new Graph();
+    Graph g = new Graph(symbols);
     g.setId(getNewGraphId());
     List<String> labels = getLabels(graphContext.header());
     g.setLabels(labels.isEmpty() ?
       useDefaultGraphLabel ? Collections.singletonList(defaultGraphLabel) : Collections.emptyList()
       : labels);
-    g.setProperties(getProperties(graphContext.properties()));
+    addProperties(g, graphContext.properties());
 
     return g;
   }
@@ -550,13 +751,13 @@ class GDLLoader extends GDLBaseListener {
    * @return new vertex
    */
   private Vertex initNewVertex(GDLParser.VertexContext vertexContext) {
-    Vertex v = new Vertex();
+    Vertex v = new Vertex(symbols);
     v.setId(getNewVertexId());
     List<String> labels = getLabels(vertexContext.header());
     v.setLabels(labels.isEmpty() ?
       useDefaultVertexLabel ? Collections.singletonList(defaultVertexLabel) : Collections.emptyList()
       : labels);
-    v.setProperties(getProperties(vertexContext.properties()));
+    addProperties(v, vertexContext.properties());
 
     return v;
   }
@@ -570,17 +771,21 @@ class GDLLoader extends GDLBaseListener {
    */
   private Edge initNewEdge(GDLParser.EdgeBodyContext edgeBodyContext, boolean isIncoming) {
     boolean hasBody = edgeBodyContext != null;
-    Edge e = new Edge();
+    Edge e = new Edge(symbols);
     e.setId(getNewEdgeId());
-    e.setSourceVertexId(getSourceVertexId(isIncoming));
-    e.setTargetVertexId(getTargetVertexId(isIncoming));
+    // the adjacent vertex on the other side has not been parsed yet
+    if (isIncoming) {
+      e.setTargetVertexId(getLastSeenVertex().getId());
+    } else {
+      e.setSourceVertexId(getLastSeenVertex().getId());
+    }
 
     if (hasBody) {
       List<String> labels = getLabels(edgeBodyContext.header());
       e.setLabels(labels.isEmpty() ?
         useDefaultEdgeLabel ? Collections.singletonList(defaultEdgeLabel) : Collections.emptyList()
         : labels);
-      e.setProperties(getProperties(edgeBodyContext.properties()));
+      addProperties(e, edgeBodyContext.properties());
       int[] range = parseEdgeLengthContext(edgeBodyContext.edgeLength());
       e.setLowerBound(range[0]);
       e.setUpperBound(range[1]);
@@ -599,6 +804,123 @@ class GDLLoader extends GDLBaseListener {
   //  Update handlers
   // --------------------------------------------------------------------------------------------
 
+  /**
+   * Moves the property values of a new element into the property store, if one is set. The
+   * values are written once all properties of the element have been added.
+   *
+   * @param element new element
+   */
+  private void storeProperties(Element element) {
+    if (propertyStore != null) {
+      element.setPropertyStore(propertyStore);
+    }
+  }
+
+  /**
+   * Adds a new graph to the database or buffers it for the element sink.
+   *
+   * @param g new graph
+   */
+  private void addGraph(Graph g) {
+    storeProperties(g);
+    if (sink != null) {
+      pendingGraphs.add(g);
+    } else {
+      graphs.add(g);
+      graphIndex.add(g);
+    }
+  }
+
+  /**
+   * Adds a new vertex to the database or buffers it for the element sink.
+   *
+   * @param v new vertex
+   */
+  private void addVertex(Vertex v) {
+    storeProperties(v);
+    if (sink != null) {
+      pendingVertices.add(v);
+    } else {
+      vertices.add(v);
+      vertexIndex.add(v);
+    }
+  }
+
+  /**
+   * Adds a new edge to the database or buffers it for the element sink.
+   *
+   * @param e new edge
+   */
+  private void addEdge(Edge e) {
+    storeProperties(e);
+    if (sink != null) {
+      pendingEdges.add(e);
+    } else {
+      edges.add(e);
+      edgeIndex.add(e);
+    }
+  }
+
+  /**
+   * Adds a graph which has been created outside of the parser and caches it by its variable.
+   *
+   * @param g new graph
+   * @param userDefined true, iff the graph variable is user-defined
+   */
+  void addGraph(Graph g, boolean userDefined) {
+    if (userDefined) {
+      userGraphCache.put(g.getVariable(), g);
+    } else if (g.hasAnonymousVariable()) {
+      autoGraphCache.add(g);
+    } else {
+      autoGraphCache.put(g.getVariable(), g);
+    }
+    addGraph(g);
+  }
+
+  /**
+   * Adds a vertex which has been created outside of the parser and caches it by its variable.
+   *
+   * @param v new vertex
+   * @param userDefined true, iff the vertex variable is user-defined
+   */
+  void addVertex(Vertex v, boolean userDefined) {
+    if (userDefined) {
+      userVertexCache.put(v.getVariable(), v);
+    } else if (v.hasAnonymousVariable()) {
+      autoVertexCache.add(v);
+    } else {
+      autoVertexCache.put(v.getVariable(), v);
+    }
+    addVertex(v);
+  }
+
+  /**
+   * Adds an edge which has been created outside of the parser and caches it by its variable.
+   *
+   * @param e new edge
+   * @param userDefined true, iff the edge variable is user-defined
+   */
+  void addEdge(Edge e, boolean userDefined) {
+    if (userDefined) {
+      userEdgeCache.put(e.getVariable(), e);
+    } else if (e.hasAnonymousVariable()) {
+      autoEdgeCache.add(e);
+    } else {
+      autoEdgeCache.put(e.getVariable(), e);
+    }
+    addEdge(e);
+  }
+
+  /**
+   * Sets the predicates of the query.
+   *
+   * @param predicates predicates or {@code null} if there is no query
+   */
+  void setPredicates(Predicate predicates) {
+    this.predicates = predicates;
+  }
+
   /**
    * If the parser is currently inside a logical graph, the given element is added to that graph.
    *
@@ -606,7 +928,18 @@ class GDLLoader extends GDLBaseListener {
    */
   private void updateGraphElement(GraphElement graphElement) {
     if (inGraph) {
-      graphElement.addToGraph(getNextGraphId());
+      long graphId = getNextGraphId();
+      if (graphElement.isInGraph(graphId)) {
+        return;
+      }
+      graphElement.addToGraph(graphId);
+      if (sink == null) {
+        if (graphElement instanceof Vertex) {
+          vertexIndex.addToGraph((Vertex) graphElement, graphId);
+        } else {
+          edgeIndex.addToGraph((Edge) graphElement, graphId);
+        }
+      }
     }
   }
 
@@ -646,28 +979,38 @@ class GDLLoader extends GDLBaseListener {
   }
 
   /**
-   * Returns the properties map from a given properties context.
+   * Adds the properties of a given properties context to an element.
    *
-   * @param propertiesContext properties context
-   * @return properties map or {@code null} if context was null
+   * @param element element
+   * @param propertiesContext properties context or {@code null}
    */
-  private Map<String, Object> getProperties(GDLParser.PropertiesContext propertiesContext) {
+  private void addProperties(Element element, GDLParser.PropertiesContext propertiesContext) {
     if (propertiesContext != null) {
-      Map<String, Object> properties = new HashMap<>();
       for (GDLParser.PropertyContext property : propertiesContext.property()) {
         if (property.listLiteral() != null) {
-          List<Object> list = property.listLiteral().literalList().literal()
-                  .stream()
-                  .map(this::getPropertyValue)
-                  .collect(Collectors.toList());
-          properties.put(property.Identifier().getText(), list);
+          List<GDLParser.LiteralContext> literals = property.listLiteral().literalList().literal();
+          if (useLazyProperties && !literals.isEmpty() && LiteralSpan.isBuffered(literals.get(0))) {
+            element.addProperty(symbols.intern(property.Identifier().getText()),
+              LiteralSpan.of(literals));
+          } else {
+            List<Object> list = literals
+                    .stream()
+                    .map(this::getPropertyValue)
+                    .collect(Collectors.toList());
+            element.addProperty(symbols.intern(property.Identifier().getText()), list);
+          }
+        } else if (property.Parameter() != null) {
+          element.addProperty(symbols.intern(property.Identifier().getText()),
+            getParameter(property.Parameter()));
+        } else if (useLazyProperties && LiteralSpan.isBuffered(property.literal())) {
+          element.addProperty(symbols.intern(property.Identifier().getText()),
+            LiteralSpan.of(property.literal()));
         } else {
-          properties.put(property.Identifier().getText(), getPropertyValue(property.literal()));
+          element.addProperty(symbols.intern(property.Identifier().getText()),
+            getPropertyValue(property.literal()));
         }
       }
-      return properties;
     }
-    return Collections.emptyMap();
   }
 
   /**
@@ -677,29 +1020,51 @@ class GDLLoader extends GDLBaseListener {
    * @return parsed value
    */
   private Object getPropertyValue(GDLParser.LiteralContext literalContext) {
-    String text;
-    if (literalContext.StringLiteral() != null) {
-      return parseString(literalContext.StringLiteral().getText());
-    } else if (literalContext.BooleanLiteral() != null) {
-      return Boolean.parseBoolean(literalContext.BooleanLiteral().getText());
-    } else if (literalContext.IntegerLiteral() != null) {
-      text = literalContext.IntegerLiteral().getText().toLowerCase();
-      if (text.endsWith("l")) {
-        return Long.parseLong(text.substring(0, text.length() - 1));
-      }
-      return Integer.parseInt(text);
-    } else if (literalContext.FloatingPointLiteral() != null) {
-      text = literalContext.FloatingPointLiteral().getText().toLowerCase();
-      if (text.endsWith("f")) {
-        return Float.parseFloat(text.substring(0, text.length() - 1));
-      } else if (text.endsWith("d")) {
-        return Double.parseDouble(text.substring(0, text.length() - 1));
-      }
-      return Float.parseFloat(text);
-    } else if (literalContext.NaN() != null) {
-      return Double.NaN;
+    return parseLiteral(literalContext.getStart().getType(), literalContext.getText());
+  }
+
+  /**
+   * Returns the corresponding value for the text of a literal token.
+   *
+   * @param tokenType literal token type
+   * @param text token text
+   * @return parsed value
+   */
+  static Object parseLiteral(int tokenType, String text) {
+    switch (tokenType) {
+      case GDLParser.StringLiteral:
+        return parseString(text);
+      case GDLParser.BooleanLiteral:
+        return Boolean.parseBoolean(text);
+      case GDLParser.IntegerLiteral:
+        text = text.toLowerCase();
+        if (text.endsWith("l")) {
+          return Long.parseLong(text.substring(0, text.length() - 1));
+        }
+        return Integer.parseInt(text);
+      case GDLParser.FloatingPointLiteral:
+        text = text.toLowerCase();
+        if (text.endsWith("f")) {
+          return Float.parseFloat(text.substring(0, text.length() - 1));
+        } else if (text.endsWith("d")) {
+          return Double.parseDouble(text.substring(0, text.length() - 1));
+        }
+        return Float.parseFloat(text);
+      case GDLParser.NaN:
+        return Double.NaN;
+      default:
+        return null;
     }
-    return null;
+  }
+
+  /**
+   * Returns the placeholder for a given parameter token.
+   *
+   * @param parameterNode parameter token including the leading '$'
+   * @return parameter placeholder
+   */
+  private Parameter getParameter(TerminalNode parameterNode) {
+    return new Parameter(parameterNode.getText().substring(1));
   }
 
   /**
@@ -760,6 +1125,8 @@ class GDLLoader extends GDLBaseListener {
       return new Literal(getPropertyValue(element.literal()));
     } else if(element.propertyLookup() != null) {
       return buildPropertySelector(element.propertyLookup());
+    } else if(element.Parameter() != null) {
+      return getParameter(element.Parameter());
     } else {
       return new ElementSelector(element.Identifier().getText());
     }
@@ -797,7 +1164,7 @@ class GDLLoader extends GDLBaseListener {
    *
    * @return current graph identifier
    */
-  private Long getNextGraphId() {
+  private long getNextGraphId() {
     return currentGraphId;
   }
 
@@ -806,8 +1173,8 @@ class GDLLoader extends GDLBaseListener {
    *
    * @return new graph identifier
    */
-  private Long getNewGraphId() {
-    return nextGraphId.get();
+  long getNewGraphId() {
+    return nextGraphId.getAsLong();
   }
 
   /**
@@ -815,8 +1182,8 @@ class GDLLoader extends GDLBaseListener {
    *
    * @return new vertex identifier
    */
-  private Long getNewVertexId() {
-    return nextVertexId.get();
+  long getNewVertexId() {
+    return nextVertexId.getAsLong();
   }
 
   /**
@@ -824,8 +1191,8 @@ class GDLLoader extends GDLBaseListener {
    *
    * @return new edge identifier
    */
-  private Long getNewEdgeId() {
-    return nextEdgeId.get();
+  long getNewEdgeId() {
+    return nextEdgeId.getAsLong();
   }
 
   // --------------------------------------------------------------------------------------------
@@ -833,26 +1200,42 @@ class GDLLoader extends GDLBaseListener {
   // --------------------------------------------------------------------------------------------
 
   /**
-   * Creates a cache containing a mapping from variables to query elements. The cache is filled
-   * with elements from the user cache and/or the auto cache depending on the specified flags.
+   * Returns a view of the mapping from variables to query elements. The view contains the
+   * elements from the user cache and/or the auto cache depending on the specified flags and
+   * reflects later changes of the caches.
    *
    * @param userCache element user cache
    * @param autoCache element auto cache
    * @param includeUserDefined true, iff user cache elements shall be included
    * @param includeAutoGenerated true, iff auto cache elements shall be included
    * @param <T> query element type
-   * @return immutable cache
+   * @return unmodifiable cache view
    */
   private <T> Map<String, T> getCache(Map<String, T> userCache, Map<String, T> autoCache,
     boolean includeUserDefined, boolean includeAutoGenerated) {
-    Map<String, T> cache = new HashMap<>();
-    if (includeUserDefined) {
-      cache.putAll(userCache);
+    if (includeUserDefined && includeAutoGenerated) {
+      return new CacheView<>(userCache, autoCache);
+    } else if (includeUserDefined) {
+      return Collections.unmodifiableMap(userCache);
+    } else if (includeAutoGenerated) {
+      return Collections.unmodifiableMap(autoCache);
     }
-    if (includeAutoGenerated) {
-      cache.putAll(autoCache);
-    }
-    return Collections.unmodifiableMap(cache);
+    return Collections.emptyMap();
+  }
+
+  /**
+   * Returns the element bound to a user-defined or auto-generated variable.
+   *
+   * @param userCache element user cache
+   * @param autoCache element auto cache
+   * @param variable variable
+   * @param <T> query element type
+   * @return element or {@code null} if the variable is unbound
+   */
+  private static <T> T getCached(Map<String, T> userCache, Map<String, T> autoCache,
+    String variable) {
+    T element = autoCache.get(variable);
+    return element != null ? element : userCache.get(variable);
   }
 
   /**
@@ -878,9 +1261,9 @@ class GDLLoader extends GDLBaseListener {
   private void updateLastSeenEdge(Vertex v) {
     Edge lastSeenEdge = getLastSeenEdge();
     if (lastSeenEdge != null) {
-      if (lastSeenEdge.getSourceVertexId() == null) {
+      if (!lastSeenEdge.hasSourceVertexId()) {
         lastSeenEdge.setSourceVertexId(v.getId());
-      } else if (lastSeenEdge.getTargetVertexId() == null) {
+      } else if (!lastSeenEdge.hasTargetVertexId()) {
         lastSeenEdge.setTargetVertexId(v.getId());
       }
     }
@@ -922,26 +1305,6 @@ class GDLLoader extends GDLBaseListener {
     lastSeenEdge = e;
   }
 
-  /**
-   * Returns the source vertex identifier of an edge.
-   *
-   * @param isIncoming true, if edge is an incoming edge, false for outgoing edge
-   * @return the source vertex identifier or {@code null} if vertex has not been parsed yet
-   */
-  private Long getSourceVertexId(boolean isIncoming) {
-    return isIncoming ? null : getLastSeenVertex().getId();
-  }
-
-  /**
-   * Returns the target vertex identifier of an edge.
-   *
-   * @param isIncoming true, if edge is an incoming edge, false for outgoing edge
-   * @return the target vertex identifier or {@code null} if vertex has not been parsed yet
-   */
-  private Long getTargetVertexId(boolean isIncoming) {
-    return isIncoming ? getLastSeenVertex().getId() : null;
-  }
-
   /**
    * Parses a terminal node to an integer.
    *
@@ -958,7 +1321,7 @@ class GDLLoader extends GDLBaseListener {
    * @param in the raw input string
    * @return the parsed string
    */
-  private String parseString(String in) {
+  static String parseString(String in) {
     return in.replaceAll("^.|.$", "")
              .replaceAll("\\\\\"","\"")
              .replaceAll("\\\\\'","'");
@@ -0,0 +1,582 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl;
+
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.Graph;
+import org.s1ck.gdl.model.GraphElement;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.comparables.ComparableExpression;
+import org.s1ck.gdl.model.comparables.ElementSelector;
+import org.s1ck.gdl.model.comparables.Literal;
+import org.s1ck.gdl.model.comparables.Parameter;
+import org.s1ck.gdl.model.comparables.PropertySelector;
+import org.s1ck.gdl.model.predicates.Predicate;
+import org.s1ck.gdl.model.predicates.booleans.And;
+import org.s1ck.gdl.model.predicates.booleans.Not;
+import org.s1ck.gdl.model.predicates.booleans.Or;
+import org.s1ck.gdl.model.predicates.booleans.Xor;
+import org.s1ck.gdl.model.predicates.expressions.Comparison;
+import org.s1ck.gdl.utils.Comparator;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes the state of a {@link GDLLoader} in a compact binary format, which can be
+ * loaded without lexing and parsing the original script.
+ *
+ * A snapshot starts with a header and a dictionary of all variables, labels and property keys,
+ * followed by graphs, vertices, edges and the query predicates. Identifiers and counts are stored
+ * as variable-length integers, property values are tagged with their type.
+ */
+class GDLSnapshot {
+  /**
+   * Marks the start of a snapshot.
+   */
+  private static final int MAGIC = 0x47444c53; // "GDLS"
+  /**
+   * Version of the snapshot format.
+   */
+  static final int VERSION = 2;
+
+  // element flags
+  private static final int USER_DEFINED = 1;
+  private static final int HAS_SOURCE = 1 << 1;
+  private static final int HAS_TARGET = 1 << 2;
+  private static final int ANONYMOUS = 1 << 3;
+
+  // property value types
+  private static final int NULL = 0;
+  private static final int STRING = 1;
+  private static final int TRUE = 2;
+  private static final int FALSE = 3;
+  private static final int INTEGER = 4;
+  private static final int LONG = 5;
+  private static final int FLOAT = 6;
+  private static final int DOUBLE = 7;
+  private static final int LIST = 8;
+  private static final int PARAMETER = 9;
+
+  // predicate types
+  private static final int COMPARISON = 0;
+  private static final int NOT = 1;
+  private static final int AND = 2;
+  private static final int OR = 3;
+  private static final int XOR = 4;
+
+  // comparable expression types
+  private static final int ELEMENT_SELECTOR = 0;
+  private static final int PROPERTY_SELECTOR = 1;
+  private static final int LITERAL = 2;
+  private static final int PARAMETER_EXPRESSION = 3;
+
+  /**
+   * Dictionary indexes by string (used for writing).
+   */
+  private final Map<String, Integer> dictionary = new HashMap<>();
+  /**
+   * Dictionary strings by index.
+   */
+  private final List<String> strings = new ArrayList<>();
+
+  private GDLSnapshot() {
+  }
+
+  /**
+   * Writes the elements, variable caches and predicates of the given loader to a stream.
+   *
+   * @param loader loader to write
+   * @param outputStream target stream (not closed by this method)
+   * @throws IOException if the stream cannot be written
+   */
+  static void write(GDLLoader loader, OutputStream outputStream) throws IOException {
+    new GDLSnapshot().writeLoader(loader, outputStream);
+  }
+
+  /**
+   * Reads a snapshot from a stream and adds its content to the given loader.
+   *
+   * The stream is not buffered, so no bytes after the end of the snapshot are consumed. Callers
+   * which read from an unbuffered source should pass a {@link java.io.BufferedInputStream}.
+   *
+   * @param inputStream source stream (not closed by this method)
+   * @param loader loader to add elements to
+   * @throws IOException if the stream cannot be read or does not contain a valid snapshot
+   */
+  static void read(InputStream inputStream, GDLLoader loader) throws IOException {
+    new GDLSnapshot().readLoader(inputStream, loader);
+  }
+
+  // --------------------------------------------------------------------------------------------
+  //  Writing
+  // --------------------------------------------------------------------------------------------
+
+  private void writeLoader(GDLLoader loader, OutputStream outputStream) throws IOException {
+    Collection<Graph> graphs = loader.getGraphs();
+    Collection<Vertex> vertices = loader.getVertices();
+    Collection<Edge> edges = loader.getEdges();
+    Map<String, Graph> graphCache = loader.getGraphCache();
+    Map<String, Vertex> vertexCache = loader.getVertexCache();
+    Map<String, Edge> edgeCache = loader.getEdgeCache();
+
+    graphs.forEach(this::collectStrings);
+    vertices.forEach(this::collectStrings);
+    edges.forEach(this::collectStrings);
+
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+    out.writeInt(MAGIC);
+    out.writeByte(VERSION);
+    writeVarInt(out, strings.size());
+    for (String string : strings) {
+      writeString(out, string);
+    }
+
+    writeVarInt(out, graphs.size());
+    for (Graph g : graphs) {
+      writeElement(out, g, graphCache.get(g.getVariable()) == g ? USER_DEFINED : 0);
+    }
+    writeVarInt(out, vertices.size());
+    for (Vertex v : vertices) {
+      writeElement(out, v, vertexCache.get(v.getVariable()) == v ? USER_DEFINED : 0);
+      writeGraphs(out, v);
+    }
+    writeVarInt(out, edges.size());
+    for (Edge e : edges) {
+      int flags = edgeCache.get(e.getVariable()) == e ? USER_DEFINED : 0;
+      flags |= e.hasSourceVertexId() ? HAS_SOURCE : 0;
+      flags |= e.hasTargetVertexId() ? HAS_TARGET : 0;
+      writeElement(out, e, flags);
+      writeGraphs(out, e);
+      if (e.hasSourceVertexId()) {
+        writeVarLong(out, e.getSourceId());
+      }
+      if (e.hasTargetVertexId()) {
+        writeVarLong(out, e.getTargetId());
+      }
+      writeVarLong(out, e.getLowerBound());
+      writeVarLong(out, e.getUpperBound());
+    }
+
+    Predicate predicates = loader.getPredicates().orElse(null);
+    out.writeBoolean(predicates != null);
+    if (predicates != null) {
+      writePredicate(out, predicates);
+    }
+    out.flush();
+  }
+
+  /**
+   * Adds variable, labels and property keys of an element to the dictionary.
+   *
+   * @param element element
+   */
+  private void collectStrings(Element element) {
+    if (!element.hasAnonymousVariable()) {
+      addString(element.getVariable());
+    }
+    if (element.getLabels() != null) {
+      element.getLabels().forEach(this::addString);
+    }
+    element.getProperties().keySet().forEach(this::addString);
+  }
+
+  private void addString(String string) {
+    if (string != null && !dictionary.containsKey(string)) {
+      dictionary.put(string, strings.size());
+      strings.add(string);
+    }
+  }
+
+  /**
+   * Writes a dictionary reference, where 0 represents {@code null}.
+   *
+   * @param out output
+   * @param string dictionary string or {@code null}
+   * @throws IOException if the output cannot be written
+   */
+  private void writeReference(DataOutputStream out, String string) throws IOException {
+    writeVarInt(out, string == null ? 0 : dictionary.get(string) + 1);
+  }
+
+  private void writeElement(DataOutputStream out, Element element, int flags) throws IOException {
+    boolean anonymous = element.hasAnonymousVariable();
+    out.writeByte(anonymous ? flags | ANONYMOUS : flags);
+    writeVarLong(out, element.getId());
+    // anonymous variables are derived from the identifier
+    writeReference(out, anonymous ? null : element.getVariable());
+
+    List<String> labels = element.getLabels();
+    writeVarInt(out, labels == null ? 0 : labels.size() + 1);
+    if (labels != null) {
+      for (String label : labels) {
+        writeReference(out, label);
+      }
+    }
+
+    Map<String, Object> properties = element.getProperties();
+    writeVarInt(out, properties.size());
+    for (Map.Entry<String, Object> property : properties.entrySet()) {
+      writeReference(out, property.getKey());
+      writeValue(out, property.getValue());
+    }
+  }
+
+  private void writeGraphs(DataOutputStream out, GraphElement element) throws IOException {
+    writeVarInt(out, element.getGraphCount());
+    for (long graphId : element.getGraphIds()) {
+      writeVarLong(out, graphId);
+    }
+  }
+
+  private void writeValue(DataOutputStream out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof String) {
+      out.writeByte(STRING);
+      writeString(out, (String) value);
+    } else if (value instanceof Boolean) {
+      out.writeByte((Boolean) value ? TRUE : FALSE);
+    } else if (value instanceof Integer) {
+      out.writeByte(INTEGER);
+      writeVarLong(out, (Integer) value);
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      writeVarLong(out, (Long) value);
+    } else if (value instanceof Float) {
+      out.writeByte(FLOAT);
+      out.writeFloat((Float) value);
+    } else if (value instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      out.writeByte(LIST);
+      writeVarInt(out, list.size());
+      for (Object item : list) {
+        writeValue(out, item);
+      }
+    } else if (value instanceof Parameter) {
+      out.writeByte(PARAMETER);
+      writeString(out, ((Parameter) value).getName());
+    } else {
+      throw new IllegalArgumentException("Unsupported property value type: " + value.getClass());
+    }
+  }
+
+  private void writePredicate(DataOutputStream out, Predicate predicate) throws IOException {
+    if (predicate instanceof Comparison) {
+      Comparison comparison = (Comparison) predicate;
+      out.writeByte(COMPARISON);
+      writeExpression(out, comparison.getComparableExpressions()[0]);
+      out.writeByte(comparison.getComparator().ordinal());
+      writeExpression(out, comparison.getComparableExpressions()[1]);
+      return;
+    }
+    if (predicate instanceof Not) {
+      out.writeByte(NOT);
+    } else if (predicate instanceof And) {
+      out.writeByte(AND);
+    } else if (predicate instanceof Or) {
+      out.writeByte(OR);
+    } else if (predicate instanceof Xor) {
+      out.writeByte(XOR);
+    } else {
+      throw new IllegalArgumentException("Unsupported predicate: " + predicate.getClass());
+    }
+    for (Predicate argument : predicate.getArguments()) {
+      writePredicate(out, argument);
+    }
+  }
+
+  private void writeExpression(DataOutputStream out, ComparableExpression expression)
+    throws IOException {
+    if (expression instanceof PropertySelector) {
+      out.writeByte(PROPERTY_SELECTOR);
+      writeString(out, expression.getVariable());
+      writeString(out, ((PropertySelector) expression).getPropertyName());
+    } else if (expression instanceof ElementSelector) {
+      out.writeByte(ELEMENT_SELECTOR);
+      writeString(out, expression.getVariable());
+    } else if (expression instanceof Literal) {
+      out.writeByte(LITERAL);
+      writeValue(out, ((Literal) expression).getValue());
+    } else if (expression instanceof Parameter) {
+      out.writeByte(PARAMETER_EXPRESSION);
+      writeString(out, ((Parameter) expression).getName());
+    } else {
+      throw new IllegalArgumentException("Unsupported expression: " + expression.getClass());
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String string) throws IOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(out, bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Writes a non-negative int using 7 bits per byte.
+   *
+   * @param out output
+   * @param value non-negative value
+   * @throws IOException if the output cannot be written
+   */
+  private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  /**
+   * Writes a long using zig-zag encoding and 7 bits per byte, i.e. small negative values are
+   * encoded as short as small positive values.
+   *
+   * @param out output
+   * @param value value
+   * @throws IOException if the output cannot be written
+   */
+  private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+    long zigZag = (value << 1) ^ (value >> 63);
+    while ((zigZag & ~0x7FL) != 0) {
+      out.writeByte((int) ((zigZag & 0x7F) | 0x80));
+      zigZag >>>= 7;
+    }
+    out.writeByte((int) zigZag);
+  }
+
+  // --------------------------------------------------------------------------------------------
+  //  Reading
+  // --------------------------------------------------------------------------------------------
+
+  private void readLoader(InputStream inputStream, GDLLoader loader) throws IOException {
+    // buffering would consume bytes after the snapshot
+    DataInputStream in = new DataInputStream(inputStream);
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Input is not a GDL snapshot.");
+    }
+    int version = in.readUnsignedByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported GDL snapshot version: " + version);
+    }
+    int stringCount = readVarInt(in);
+    for (int i = 0; i < stringCount; i++) {
+      strings.add(readString(in));
+    }
+
+    int graphCount = readVarInt(in);
+    for (int i = 0; i < graphCount; i++) {
+      Graph g = new Graph(loader.getSymbolDictionary());
+      int flags = readElement(in, g, GDLLoader.ANONYMOUS_GRAPH_PREFIX);
+      loader.addGraph(g, (flags & USER_DEFINED) != 0);
+    }
+    int vertexCount = readVarInt(in);
+    for (int i = 0; i < vertexCount; i++) {
+      Vertex v = new Vertex(loader.getSymbolDictionary());
+      int flags = readElement(in, v, GDLLoader.ANONYMOUS_VERTEX_PREFIX);
+      readGraphs(in, v);
+      loader.addVertex(v, (flags & USER_DEFINED) != 0);
+    }
+    int edgeCount = readVarInt(in);
+    for (int i = 0; i < edgeCount; i++) {
+      Edge e = new Edge(loader.getSymbolDictionary());
+      int flags = readElement(in, e, GDLLoader.ANONYMOUS_EDGE_PREFIX);
+      readGraphs(in, e);
+      if ((flags & HAS_SOURCE) != 0) {
+        e.setSourceVertexId(readVarLong(in));
+      }
+      if ((flags & HAS_TARGET) != 0) {
+        e.setTargetVertexId(readVarLong(in));
+      }
+      e.setLowerBound((int) readVarLong(in));
+      e.setUpperBound((int) readVarLong(in));
+      loader.addEdge(e, (flags & USER_DEFINED) != 0);
+    }
+
+    if (in.readBoolean()) {
+      loader.setPredicates(readPredicate(in));
+    }
+  }
+
+  /**
+   * Reads a dictionary reference, where 0 represents {@code null}.
+   *
+   * @param in input
+   * @return dictionary string or {@code null}
+   * @throws IOException if the input cannot be read
+   */
+  private String readReference(DataInputStream in) throws IOException {
+    int index = readVarInt(in);
+    if (index > strings.size()) {
+      throw new IOException("Invalid dictionary reference: " + index);
+    }
+    return index == 0 ? null : strings.get(index - 1);
+  }
+
+  private int readElement(DataInputStream in, Element element, String anonymousPrefix)
+    throws IOException {
+    int flags = in.readUnsignedByte();
+    element.setId(readVarLong(in));
+    String variable = readReference(in);
+    if ((flags & ANONYMOUS) != 0) {
+      element.setAnonymousVariable(anonymousPrefix);
+    } else {
+      element.setVariable(variable);
+    }
+
+    int labelCount = readVarInt(in);
+    if (labelCount > 0) {
+      List<String> labels = new ArrayList<>(labelCount - 1);
+      for (int i = 1; i < labelCount; i++) {
+        labels.add(readReference(in));
+      }
+      element.setLabels(labels);
+    }
+
+    int propertyCount = readVarInt(in);
+    for (int i = 0; i < propertyCount; i++) {
+      String key = readReference(in);
+      element.addProperty(element.getSymbolDictionary().intern(key), readValue(in));
+    }
+    return flags;
+  }
+
+  private void readGraphs(DataInputStream in, GraphElement element) throws IOException {
+    int graphCount = readVarInt(in);
+    for (int i = 0; i < graphCount; i++) {
+      element.addToGraph(readVarLong(in));
+    }
+  }
+
+  private Object readValue(DataInputStream in) throws IOException {
+    int type = in.readUnsignedByte();
+    switch (type) {
+      case NULL:
+        return null;
+      case STRING:
+        return readString(in);
+      case TRUE:
+        return true;
+      case FALSE:
+        return false;
+      case INTEGER:
+        return (int) readVarLong(in);
+      case LONG:
+        return readVarLong(in);
+      case FLOAT:
+        return in.readFloat();
+      case DOUBLE:
+        return in.readDouble();
+      case LIST:
+        int size = readVarInt(in);
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          list.add(readValue(in));
+        }
+        return list;
+      case PARAMETER:
+        return new Parameter(readString(in));
+      default:
+        throw new IOException("Invalid property value type: " + type);
+    }
+  }
+
+  private Predicate readPredicate(DataInputStream in) throws IOException {
+    int type = in.readUnsignedByte();
+    switch (type) {
+      case COMPARISON:
+        ComparableExpression lhs = readExpression(in);
+        int comparator = in.readUnsignedByte();
+        if (comparator >= Comparator.values().length) {
+          throw new IOException("Invalid comparator: " + comparator);
+        }
+        return new Comparison(lhs, Comparator.values()[comparator], readExpression(in));
+      case NOT:
+        return new Not(readPredicate(in));
+      case AND:
+        return new And(readPredicate(in), readPredicate(in));
+      case OR:
+        return new Or(readPredicate(in), readPredicate(in));
+      case XOR:
+        return new Xor(readPredicate(in), readPredicate(in));
+      default:
+        throw new IOException("Invalid predicate type: " + type);
+    }
+  }
+
+  private ComparableExpression readExpression(DataInputStream in) throws IOException {
+    int type = in.readUnsignedByte();
+    switch (type) {
+      case ELEMENT_SELECTOR:
+        return new ElementSelector(readString(in));
+      case PROPERTY_SELECTOR:
+        return new PropertySelector(readString(in), readString(in));
+      case LITERAL:
+        return new Literal(readValue(in));
+      case PARAMETER_EXPRESSION:
+        return new Parameter(readString(in));
+      default:
+        throw new IOException("Invalid expression type: " + type);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[readVarInt(in)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static int readVarInt(DataInputStream in) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        if (value < 0) {
+          throw new IOException("Invalid count: " + value);
+        }
+        return value;
+      }
+    }
+    throw new IOException("Malformed variable-length integer.");
+  }
+
+  private static long readVarLong(DataInputStream in) throws IOException {
+    long zigZag = 0L;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+      zigZag |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+      }
+    }
+    throw new IOException("Malformed variable-length integer.");
+  }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl;
+
+import org.s1ck.gdl.exceptions.UnboundParameterException;
+import org.s1ck.gdl.model.Edge;
+import org.s1ck.gdl.model.Element;
+import org.s1ck.gdl.model.Graph;
+import org.s1ck.gdl.model.GraphElement;
+import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.comparables.ComparableExpression;
+import org.s1ck.gdl.model.comparables.ElementSelector;
+import org.s1ck.gdl.model.comparables.Literal;
+import org.s1ck.gdl.model.comparables.Parameter;
+import org.s1ck.gdl.model.comparables.PropertySelector;
+import org.s1ck.gdl.model.predicates.Predicate;
+import org.s1ck.gdl.model.predicates.booleans.And;
+import org.s1ck.gdl.model.predicates.booleans.Not;
+import org.s1ck.gdl.model.predicates.booleans.Or;
+import org.s1ck.gdl.model.predicates.booleans.Xor;
+import org.s1ck.gdl.model.predicates.expressions.Comparison;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * A GDL script which has been parsed once and can be instantiated many times.
+ *
+ * A template holds the elements created by {@link GDLLoader} using template-local identifiers.
+ * Each instantiation copies these elements and assigns new identifiers without lexing or parsing
+ * the script again (see {@link GDLHandler.Builder#compileTemplate(String)} and
+ * {@link GDLHandler.Builder#buildFromTemplate(GDLTemplate)}).
+ */
+public class GDLTemplate {
+  /**
+   * Graphs ordered by their template identifiers.
+   */
+  private final Graph[] graphs;
+  /**
+   * Vertices ordered by their template identifiers.
+   */
+  private final Vertex[] vertices;
+  /**
+   * Edges ordered by their template identifiers.
+   */
+  private final Edge[] edges;
+  /**
+   * Flags for graphs bound to user-defined variables.
+   */
+  private final boolean[] userGraphs;
+  /**
+   * Flags for vertices bound to user-defined variables.
+   */
+  private final boolean[] userVertices;
+  /**
+   * Flags for edges bound to user-defined variables.
+   */
+  private final boolean[] userEdges;
+  /**
+   * Query predicates or {@code null}.
+   */
+  private final Predicate predicates;
+  /**
+   * Names of all parameters used in the script.
+   */
+  private final Set<String> parameterNames;
+
+  /**
+   * Creates a template from the state of a loader which used continuous identifiers starting
+   * at zero.
+   *
+   * @param loader loader which has processed the script
+   */
+  GDLTemplate(GDLLoader loader) {
+    this.graphs = sort(loader.getGraphs(), new Graph[0]);
+    this.vertices = sort(loader.getVertices(), new Vertex[0]);
+    this.edges = sort(loader.getEdges(), new Edge[0]);
+    this.userGraphs = userDefined(graphs, loader.getGraphCache());
+    this.userVertices = userDefined(vertices, loader.getVertexCache());
+    this.userEdges = userDefined(edges, loader.getEdgeCache());
+    this.predicates = loader.getPredicates().orElse(null);
+    this.parameterNames = collectParameterNames();
+  }
+
+  /**
+   * Returns the names of all parameters used in the script.
+   *
+   * @return parameter names without the leading '$'
+   */
+  Set<String> getParameterNames() {
+    return parameterNames;
+  }
+
+  /**
+   * Adds a copy of all template elements to the given loader.
+   *
+   * Identifiers are drawn from the loader per element type in the order in which the elements
+   * are defined in the script, i.e. the result is the same as parsing the script if each element
+   * type uses its own id supplier. All graph identifiers are drawn before the vertex identifiers
+   * and those before the edge identifiers, so a supplier shared by several element types yields
+   * different identifiers than parsing, which interleaves the element types. Parameters in
+   * property values and predicates are replaced by the given values.
+   *
+   * @param loader loader to add the elements to
+   * @param parameters values of all parameters used in the script or {@code null} to keep the
+   *                   parameter placeholders
+   * @throws UnboundParameterException if there is no value for a parameter
+   */
+  void instantiate(GDLLoader loader, Map<String, ?> parameters) {
+    if (parameters != null) {
+      for (String name : parameterNames) {
+        if (!parameters.containsKey(name)) {
+          throw new UnboundParameterException(name);
+        }
+      }
+    }
+
+    long[] graphIds = new long[graphs.length];
+    long[] vertexIds = new long[vertices.length];
+    // only predicates refer to variables
+    Map<String, String> renamedVariables = predicates != null ? new HashMap<>() : null;
+
+    for (int i = 0; i < graphs.length; i++) {
+      Graph g = new Graph(loader.getSymbolDictionary());
+      graphIds[i] = loader.getNewGraphId();
+      copyElement(graphs[i], g, graphIds[i], userGraphs[i],
+        GDLLoader.ANONYMOUS_GRAPH_PREFIX, renamedVariables, parameters);
+      loader.addGraph(g, userGraphs[i]);
+    }
+    for (int i = 0; i < vertices.length; i++) {
+      Vertex v = new Vertex(loader.getSymbolDictionary());
+      vertexIds[i] = loader.getNewVertexId();
+      copyElement(vertices[i], v, vertexIds[i], userVertices[i],
+        GDLLoader.ANONYMOUS_VERTEX_PREFIX, renamedVariables, parameters);
+      copyGraphs(vertices[i], v, graphIds);
+      loader.addVertex(v, userVertices[i]);
+    }
+    for (int i = 0; i < edges.length; i++) {
+      Edge e = new Edge(loader.getSymbolDictionary());
+      copyElement(edges[i], e, loader.getNewEdgeId(), userEdges[i],
+        GDLLoader.ANONYMOUS_EDGE_PREFIX, renamedVariables, parameters);
+      copyGraphs(edges[i], e, graphIds);
+      // template identifiers are array indexes, see sort(Collection, Element[])
+      e.setSourceVertexId(vertexIds[(int) edges[i].getSourceId()]);
+      e.setTargetVertexId(vertexIds[(int) edges[i].getTargetId()]);
+      e.setLowerBound(edges[i].getLowerBound());
+      e.setUpperBound(edges[i].getUpperBound());
+      loader.addEdge(e, userEdges[i]);
+    }
+
+    if (predicates != null) {
+      boolean bind = parameters != null && !parameterNames.isEmpty();
+      loader.setPredicates(renamedVariables.isEmpty() && !bind ? predicates :
+        rewrite(predicates, expression -> bind && expression instanceof Parameter ?
+          new Literal(parameters.get(((Parameter) expression).getName())) :
+          rename(expression, renamedVariables)));
+    }
+  }
+
+  /**
+   * Copies identifier, variable, labels and properties of an element and binds parameters in
+   * property values.
+   *
+   * @param source template element
+   * @param target new element
+   * @param id identifier of the new element
+   * @param userDefined true, iff the element is bound to a user-defined variable
+   * @param anonymousPrefix prefix of auto-generated variables
+   * @param renamedVariables collects auto-generated variables which have changed or {@code null}
+   * @param parameters parameter values or {@code null}
+   */
+  private static void copyElement(Element source, Element target, long id, boolean userDefined,
+    String anonymousPrefix, Map<String, String> renamedVariables, Map<String, ?> parameters) {
+    target.setId(id);
+    if (userDefined) {
+      target.setVariable(source.getVariable());
+    } else {
+      target.setAnonymousVariable(anonymousPrefix);
+      if (renamedVariables != null && source.getId() != id) {
+        renamedVariables.put(source.getVariable(), target.getVariable());
+      }
+    }
+    target.setLabels(source.getLabels());
+    for (Map.Entry<String, Object> property : source.getProperties().entrySet()) {
+      Object value = property.getValue();
+      if (value instanceof Parameter && parameters != null) {
+        value = parameters.get(((Parameter) value).getName());
+      } else if (value instanceof List) {
+        value = new ArrayList<>((List<?>) value);
+      }
+      target.addProperty(target.getSymbolDictionary().intern(property.getKey()), value);
+    }
+  }
+
+  /**
+   * Adds the new element to the new graphs corresponding to the graphs of the template element.
+   *
+   * @param source template element
+   * @param target new element
+   * @param graphIds new graph identifiers indexed by template graph identifiers
+   */
+  private static void copyGraphs(GraphElement source, GraphElement target, long[] graphIds) {
+    // template identifiers are array indexes, see sort(Collection, Element[])
+    for (long graphId : source.getGraphIds()) {
+      target.addToGraph(graphIds[(int) graphId]);
+    }
+  }
+
+  /**
+   * Replaces the variable of a comparable expression if it has been renamed.
+   *
+   * @param expression comparable expression
+   * @param renamedVariables mapping from old to new variables
+   * @return expression referring to the new variable
+   */
+  private static ComparableExpression rename(ComparableExpression expression,
+    Map<String, String> renamedVariables) {
+    String variable = renamedVariables.get(expression.getVariable());
+    if (variable == null) {
+      return expression;
+    } else if (expression instanceof PropertySelector) {
+      return new PropertySelector(variable, ((PropertySelector) expression).getPropertyName());
+    } else {
+      return new ElementSelector(variable);
+    }
+  }
+
+  /**
+   * Creates a copy of the given predicate tree with all comparable expressions replaced by the
+   * result of the given function.
+   *
+   * @param predicate predicate tree
+   * @param function function applied to all comparable expressions
+   * @return new predicate tree
+   */
+  static Predicate rewrite(Predicate predicate, UnaryOperator<ComparableExpression> function) {
+    if (predicate instanceof Comparison) {
+      Comparison comparison = (Comparison) predicate;
+      ComparableExpression[] expressions = comparison.getComparableExpressions();
+      return new Comparison(function.apply(expressions[0]), comparison.getComparator(),
+        function.apply(expressions[1]));
+    }
+    Predicate[] arguments = predicate.getArguments();
+    if (predicate instanceof Not) {
+      return new Not(rewrite(arguments[0], function));
+    } else if (predicate instanceof And) {
+      return new And(rewrite(arguments[0], function), rewrite(arguments[1], function));
+    } else if (predicate instanceof Or) {
+      return new Or(rewrite(arguments[0], function), rewrite(arguments[1], function));
+    } else if (predicate instanceof Xor) {
+      return new Xor(rewrite(arguments[0], function), rewrite(arguments[1], function));
+    }
+    throw new IllegalArgumentException("Unsupported predicate: " + predicate.getClass());
+  }
+
+  /**
+   * Returns the names of all parameters used in property values and predicates.
+   *
+   * @return parameter names
+   */
+  private Set<String> collectParameterNames() {
+    Set<String> names = new HashSet<>();
+    for (Element[] elements : new Element[][] { graphs, vertices, edges }) {
+      for (Element element : elements) {
+        for (Object value : element.getProperties().values()) {
+          if (value instanceof Parameter) {
+            names.add(((Parameter) value).getName());
+          }
+        }
+      }
+    }
+    if (predicates != null) {
+      rewrite(predicates, expression -> {
+        if (expression instanceof Parameter) {
+          names.add(((Parameter) expression).getName());
+        }
+        return expression;
+      });
+    }
+    return Collections.unmodifiableSet(names);
+  }
+
+  /**
+   * Returns the given elements ordered by identifier.
+   *
+   * The template loader uses continuous identifiers starting at zero, so the identifier of each
+   * element equals its index in the returned array.
+   *
+   * @param elements elements
+   * @param array array of the element type
+   * @param <T> element type
+   * @return ordered elements
+   * @throws IllegalArgumentException if the identifiers are not continuous or do not start at zero
+   */
+  private static <T extends Element> T[] sort(Collection<T> elements, T[] array) {
+    T[] sorted = elements.toArray(array);
+    Arrays.sort(sorted, Comparator.comparingLong(Element::getId));
+    for (int i = 0; i < sorted.length; i++) {
+      if (sorted[i].getId() != i) {
+        throw new IllegalArgumentException("Template identifiers must be continuous from zero.");
+      }
+    }
+    return sorted;
+  }
+
+  /**
+   * Returns a flag for each element which is true, iff the element is bound to a user-defined
+   * variable.
+   *
+   * @param elements elements
+   * @param userCache mapping from user-defined variables to elements
+   * @return flags
+   */
+  private static boolean[] userDefined(Element[] elements, Map<String, ? extends Element> userCache) {
+    boolean[] flags = new boolean[elements.length];
+    for (int i = 0; i < elements.length; i++) {
+      flags[i] = userCache.get(elements[i].getVariable()) == elements[i];
+    }
+    return flags;
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.s1ck.gdl;
+
+import org.s1ck.gdl.utils.IdAllocator;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Supplies identifiers from blocks which are reserved by an {@link IdAllocator}, so the allocator
+ * is called once per block instead of once per element.
+ *
+ * Each loader uses its own supplier, which is not thread-safe. Identifiers which remain in the
+ * current block when the loader is discarded are not used.
+ */
+class IdBlockSupplier implements LongSupplier {
+  /**
+   * Number of identifiers which are reserved at once if no block size is configured.
+   */
+  static final int DEFAULT_BLOCK_SIZE = 1024;
+  /**
+   * Allocator which reserves the blocks.
+   */
+  private final IdAllocator allocator;
+  /**
+   * Number of identifiers per block.
+   */
+  private final int blockSize;
+  /**
+   * Next identifier of the current block.
+   */
+  private long next;
+  /**
+   * Number of identifiers left in the current block.
+   */
+  private int remaining;
+
+  /**
+   * Creates a new supplier.
+   *
+   * @param allocator allocator which reserves the blocks
+   * @param blockSize number of identifiers per block
+   */
+  IdBlockSupplier(IdAllocator allocator, int blockSize) {
+    this.allocator = allocator;
+    this.blockSize = blockSize;
+  }
+
+  @Override
+  public long getAsLong() {
+    if (remaining == 0) {
+      next = allocator.reserve(blockSize);
+      remaining = blockSize;
+    }
+    remaining--;
+    return next++;
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl;
+
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.s1ck.gdl.exceptions.CyclicIncludeException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Parses the files referenced by {@code INCLUDE} statements before the including script is
+ * processed by a {@link GDLLoader}.
+ *
+ * All files referenced by a script are lexed and parsed concurrently, level by level, and each
+ * file is parsed only once. The loader walks the parse tree of an included file in place of the
+ * {@code INCLUDE} statement, so variables are shared across files. Statements and parse trees
+ * are released when the loader takes them, so walked files are not kept in memory.
+ */
+class IncludeResolver {
+
+  /**
+   * Parses a GDL file.
+   */
+  interface FileParser {
+    /**
+     * Parses the given file.
+     *
+     * @param file GDL file
+     * @param bail true, iff parsing shall be cancelled on the first syntax error by throwing a
+     *             {@link ParseCancellationException}, false to use the configured error strategy
+     * @return parse tree
+     * @throws IOException if the file cannot be read
+     */
+    GDLParser.DatabaseContext parse(Path file, boolean bail) throws IOException;
+  }
+
+  /**
+   * Parser for included files.
+   */
+  private final FileParser parser;
+  /**
+   * Executor which runs the parser.
+   */
+  private final Executor executor;
+  /**
+   * Parse trees by normalized file path, which have not been taken by the loader yet.
+   */
+  private final Map<Path, GDLParser.DatabaseContext> trees = new HashMap<>();
+  /**
+   * Files included by each parsed file, i.e. the keys are all files parsed so far.
+   */
+  private final Map<Path, List<Path>> includedFiles = new HashMap<>();
+  /**
+   * Included files by statement, which have not been taken by the loader yet.
+   */
+  private final Map<GDLParser.IncludeContext, Path> targets = new IdentityHashMap<>();
+
+  /**
+   * Creates a new resolver.
+   *
+   * @param parser parser for included files
+   * @param executor executor which runs the parser
+   */
+  IncludeResolver(FileParser parser, Executor executor) {
+    this.parser = parser;
+    this.executor = executor;
+  }
+
+  /**
+   * Parses all files which are included by the given parse tree, directly or indirectly.
+   *
+   * @param tree parse tree of a script
+   * @param source file of the script or {@code null}, if include paths are relative to the
+   *               working directory
+   * @throws CyclicIncludeException if a file includes itself
+   * @throws UncheckedIOException if an included file cannot be read
+   */
+  synchronized void resolve(ParseTree tree, Path source) {
+    Path baseDirectory = source == null ? Paths.get("") : source.toAbsolutePath().getParent();
+    List<Path> rootTargets = collectIncludes(tree, baseDirectory);
+
+    List<Path> frontier = rootTargets;
+    while (!frontier.isEmpty()) {
+      Map<Path, CompletableFuture<GDLParser.DatabaseContext>> futures = new LinkedHashMap<>();
+      for (Path file : frontier) {
+        if (!includedFiles.containsKey(file) && !futures.containsKey(file)) {
+          futures.put(file, CompletableFuture.supplyAsync(() -> parse(file, true), executor));
+        }
+      }
+      List<Path> next = new ArrayList<>();
+      for (Map.Entry<Path, CompletableFuture<GDLParser.DatabaseContext>> future : futures.entrySet()) {
+        Path file = future.getKey();
+        GDLParser.DatabaseContext fileTree;
+        try {
+          fileTree = future.getValue().join();
+        } catch (CompletionException e) {
+          if (!(e.getCause() instanceof ParseCancellationException)) {
+            throw e.getCause() instanceof RuntimeException ?
+              (RuntimeException) e.getCause() : e;
+          }
+          // report syntax errors using the configured error strategy
+          fileTree = parse(file, false);
+        }
+        List<Path> files = collectIncludes(fileTree, file.getParent());
+        trees.put(file, fileTree);
+        includedFiles.put(file, files);
+        next.addAll(files);
+      }
+      frontier = next;
+    }
+
+    Set<Path> visiting = new HashSet<>();
+    if (source != null) {
+      visiting.add(source.toAbsolutePath().normalize());
+    }
+    Set<Path> checked = new HashSet<>();
+    for (Path file : rootTargets) {
+      checkCycles(file, visiting, checked);
+    }
+  }
+
+  /**
+   * Returns the file included by the given statement and releases the statement.
+   *
+   * @param include include statement
+   * @return normalized file path or {@code null} if the statement has not been resolved or has
+   *         been taken already
+   */
+  synchronized Path takeFile(GDLParser.IncludeContext include) {
+    return targets.remove(include);
+  }
+
+  /**
+   * Returns the parse tree of the given file and releases it, i.e. each tree is returned once.
+   *
+   * @param file normalized file path, see {@link #takeFile(GDLParser.IncludeContext)}
+   * @return parse tree or {@code null} if the file has not been parsed or has been taken already
+   */
+  synchronized ParseTree takeTree(Path file) {
+    return trees.remove(file);
+  }
+
+  /**
+   * Returns true, iff no file has been included yet.
+   *
+   * @return true, iff no file has been included
+   */
+  synchronized boolean isEmpty() {
+    return includedFiles.isEmpty();
+  }
+
+  private GDLParser.DatabaseContext parse(Path file, boolean bail) {
+    try {
+      return parser.parse(file, bail);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns the files included by the top-level statements of a parse tree and remembers the
+   * file for each statement.
+   *
+   * @param tree parse tree
+   * @param baseDirectory directory relative include paths refer to
+   * @return included files in statement order
+   */
+  private List<Path> collectIncludes(ParseTree tree, Path baseDirectory) {
+    List<Path> files = new ArrayList<>();
+    collectIncludes(tree, baseDirectory, files);
+    return files;
+  }
+
+  private void collectIncludes(ParseTree tree, Path baseDirectory, List<Path> files) {
+    if (tree instanceof GDLParser.IncludeContext) {
+      GDLParser.IncludeContext include = (GDLParser.IncludeContext) tree;
+      if (include.StringLiteral() != null) {
+        Path file = baseDirectory.resolve(GDLLoader.parseString(include.StringLiteral().getText()))
+          .toAbsolutePath().normalize();
+        targets.put(include, file);
+        files.add(file);
+      }
+    } else if (tree instanceof GDLParser.DatabaseContext ||
+      tree instanceof GDLParser.ElementListContext ||
+      tree instanceof GDLParser.DefinitionsContext ||
+      tree instanceof GDLParser.DefinitionContext) {
+      // includes are top-level statements
+      for (int i = 0; i < tree.getChildCount(); i++) {
+        collectIncludes(tree.getChild(i), baseDirectory, files);
+      }
+    }
+  }
+
+  /**
+   * Checks that the given file does not include any file which is currently visited.
+   *
+   * @param file included file
+   * @param visiting files on the current include path
+   * @param checked files which do not include themselves
+   */
+  private void checkCycles(Path file, Set<Path> visiting, Set<Path> checked) {
+    if (!visiting.add(file)) {
+      throw new CyclicIncludeException(file.toString());
+    }
+    if (checked.add(file)) {
+      for (Path included : includedFiles.get(file)) {
+        checkCycles(included, visiting, checked);
+      }
+    }
+    visiting.remove(file);
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.s1ck.gdl.model.DeferredValue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Property value which refers to literal tokens in the source of a script and is parsed on first
+ * access. The source buffer is retained until all values referring to it have been decoded.
+ */
+class LiteralSpan implements DeferredValue {
+  /**
+   * Source of the literals.
+   */
+  private final CharStream input;
+  /**
+   * Type, start index and stop index of each literal token.
+   */
+  private final int[] tokens;
+  /**
+   * True, iff the value is a list of literals.
+   */
+  private final boolean list;
+
+  private LiteralSpan(CharStream input, int[] tokens, boolean list) {
+    this.input = input;
+    this.tokens = tokens;
+    this.list = list;
+  }
+
+  /**
+   * Checks if the text of a literal can still be read after parsing.
+   *
+   * @param literal literal context
+   * @return true, iff the source of the literal is buffered
+   */
+  static boolean isBuffered(GDLParser.LiteralContext literal) {
+    CharStream input = literal.getStart().getInputStream();
+    return input != null && !(input instanceof UnbufferedCharStream);
+  }
+
+  /**
+   * Creates a span for a single literal.
+   *
+   * @param literal literal context
+   * @return deferred value
+   */
+  static LiteralSpan of(GDLParser.LiteralContext literal) {
+    Token token = literal.getStart();
+    return new LiteralSpan(token.getInputStream(),
+      new int[] {token.getType(), token.getStartIndex(), token.getStopIndex()}, false);
+  }
+
+  /**
+   * Creates a span for a list of literals from the same source.
+   *
+   * @param literals literal contexts
+   * @return deferred value
+   */
+  static LiteralSpan of(List<GDLParser.LiteralContext> literals) {
+    int[] tokens = new int[literals.size() * 3];
+    CharStream input = null;
+    for (int i = 0; i < literals.size(); i++) {
+      Token token = literals.get(i).getStart();
+      input = token.getInputStream();
+      tokens[3 * i] = token.getType();
+      tokens[3 * i + 1] = token.getStartIndex();
+      tokens[3 * i + 2] = token.getStopIndex();
+    }
+    return new LiteralSpan(input, tokens, true);
+  }
+
+  @Override
+  public Object decode() {
+    if (!list) {
+      return decode(0);
+    }
+    List<Object> values = new ArrayList<>(tokens.length / 3);
+    for (int i = 0; i < tokens.length; i += 3) {
+      values.add(decode(i));
+    }
+    return values;
+  }
+
+  private Object decode(int offset) {
+    String text = input.getText(Interval.of(tokens[offset + 1], tokens[offset + 2]));
+    return GDLLoader.parseLiteral(tokens[offset], text);
+  }
+}
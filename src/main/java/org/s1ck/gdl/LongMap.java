@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hash map with primitive {@code long} keys and non-null values.
+ *
+ * Entries are stored in two parallel arrays using open addressing with linear probing, so a
+ * lookup neither boxes the key nor follows references to entry objects. Entries cannot be
+ * removed.
+ *
+ * @param <V> value type
+ */
+class LongMap<V> {
+  /**
+   * Maximum ratio of entries to slots.
+   */
+  private static final float LOAD_FACTOR = 0.5f;
+  /**
+   * Keys by slot.
+   */
+  private long[] keys;
+  /**
+   * Values by slot, {@code null} marks an empty slot.
+   */
+  private Object[] values;
+  /**
+   * Number of entries.
+   */
+  private int size;
+
+  /**
+   * Creates an empty map.
+   */
+  LongMap() {
+    keys = new long[16];
+    values = new Object[16];
+  }
+
+  /**
+   * Returns the value for a key.
+   *
+   * @param key key
+   * @return value or {@code null} if the map does not contain the key
+   */
+  @SuppressWarnings("unchecked")
+  V get(long key) {
+    int mask = keys.length - 1;
+    for (int slot = hash(key) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+      if (keys[slot] == key) {
+        return (V) values[slot];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Associates a value with a key.
+   *
+   * @param key key
+   * @param value value (must not be {@code null})
+   * @return previous value or {@code null}
+   */
+  @SuppressWarnings("unchecked")
+  V put(long key, V value) {
+    int mask = keys.length - 1;
+    int slot = hash(key) & mask;
+    for (; values[slot] != null; slot = (slot + 1) & mask) {
+      if (keys[slot] == key) {
+        V previous = (V) values[slot];
+        values[slot] = value;
+        return previous;
+      }
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    if (++size > keys.length * LOAD_FACTOR) {
+      resize();
+    }
+    return null;
+  }
+
+  /**
+   * Returns the number of entries.
+   *
+   * @return number of entries
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns all values in slot order.
+   *
+   * @return new list of values
+   */
+  @SuppressWarnings("unchecked")
+  List<V> values() {
+    List<V> result = new ArrayList<>(size);
+    for (Object value : values) {
+      if (value != null) {
+        result.add((V) value);
+      }
+    }
+    return result;
+  }
+
+  private void resize() {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new long[oldKeys.length * 2];
+    values = new Object[oldValues.length * 2];
+    int mask = keys.length - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldValues[i] != null) {
+        int slot = hash(oldKeys[i]) & mask;
+        while (values[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  /**
+   * Spreads the bits of a key, since identifiers are often contiguous.
+   *
+   * @param key key
+   * @return hash code
+   */
+  private static int hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Directory of snapshots of parsed GDL scripts, keyed by a hash of the script and the builder
+ * settings which influence the parse result.
+ *
+ * Each entry is a {@link GDLSnapshot} of a loader which used continuous identifiers starting at
+ * zero, so it can be instantiated like a {@link GDLTemplate}. The cache is best-effort: entries
+ * which cannot be read are treated as missing and failures while storing an entry are ignored.
+ * If the total size of all entries exceeds the maximum size, the least recently used entries are
+ * deleted.
+ */
+class ParseCache {
+  /**
+   * File extension of cache entries.
+   */
+  static final String FILE_EXTENSION = ".gdls";
+  /**
+   * Number of bytes read at once when hashing a file.
+   */
+  private static final int BUFFER_SIZE = 1 << 16;
+  /**
+   * Cache directory.
+   */
+  private final Path directory;
+  /**
+   * Maximum total size of all entries in bytes.
+   */
+  private final long maxSize;
+
+  /**
+   * Creates a new cache.
+   *
+   * @param directory cache directory, which is created if necessary
+   * @param maxSize maximum total size of all entries in bytes
+   */
+  ParseCache(Path directory, long maxSize) {
+    this.directory = directory;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns the cache key for a script.
+   *
+   * @param settings builder settings which influence the parse result
+   * @param script script content
+   * @return cache key
+   */
+  String key(List<Object> settings, byte[] script) {
+    MessageDigest digest = createDigest(settings);
+    digest.update(script);
+    return toHex(digest.digest());
+  }
+
+  /**
+   * Returns the cache key for a script file.
+   *
+   * @param settings builder settings which influence the parse result
+   * @param file script file
+   * @return cache key
+   * @throws IOException if the file cannot be read
+   */
+  String key(List<Object> settings, Path file) throws IOException {
+    MessageDigest digest = createDigest(settings);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      while (channel.read(buffer) != -1) {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+      }
+    }
+    return toHex(digest.digest());
+  }
+
+  /**
+   * Loads the entry with the given key into a loader.
+   *
+   * @param key cache key
+   * @param loader empty loader
+   * @return true, iff the entry exists and has been loaded
+   */
+  boolean load(String key, GDLLoader loader) {
+    Path entry = directory.resolve(key + FILE_EXTENSION);
+    if (!Files.isRegularFile(entry)) {
+      return false;
+    }
+    try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(entry))) {
+      GDLSnapshot.read(inputStream, loader);
+      // marks the entry as recently used
+      Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+      return true;
+    } catch (IOException | RuntimeException e) {
+      deleteQuietly(entry);
+      return false;
+    }
+  }
+
+  /**
+   * Stores the state of a loader with the given key and evicts the least recently used entries
+   * if the cache is full.
+   *
+   * @param key cache key
+   * @param loader loader which has processed the script
+   */
+  void store(String key, GDLLoader loader) {
+    Path tempFile = null;
+    try {
+      Files.createDirectories(directory);
+      tempFile = Files.createTempFile(directory, key, ".tmp");
+      try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+        GDLSnapshot.write(loader, outputStream);
+      }
+      Path entry = directory.resolve(key + FILE_EXTENSION);
+      try {
+        Files.move(tempFile, entry, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile, entry, StandardCopyOption.REPLACE_EXISTING);
+      }
+      tempFile = null;
+      evict();
+    } catch (IOException | RuntimeException e) {
+      // the cache is an optimization only
+      if (tempFile != null) {
+        deleteQuietly(tempFile);
+      }
+    }
+  }
+
+  /**
+   * Deletes the least recently used entries until the total size does not exceed the maximum.
+   *
+   * @throws IOException if the directory cannot be listed
+   */
+  private void evict() throws IOException {
+    List<Path> entries = new ArrayList<>();
+    long size = 0L;
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+      for (Path entry : stream) {
+        entries.add(entry);
+        size += Files.size(entry);
+      }
+    }
+    if (size <= maxSize) {
+      return;
+    }
+    entries.sort(Comparator.comparing(ParseCache::lastModified));
+    for (Path entry : entries) {
+      if (size <= maxSize) {
+        break;
+      }
+      long entrySize = Files.size(entry);
+      if (deleteQuietly(entry)) {
+        size -= entrySize;
+      }
+    }
+  }
+
+  private static MessageDigest createDigest(List<Object> settings) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform supports SHA-256
+      throw new IllegalStateException(e);
+    }
+    digest.update((GDLSnapshot.VERSION + ":" + settings + "\n").getBytes(StandardCharsets.UTF_8));
+    return digest;
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  private static FileTime lastModified(Path entry) {
+    try {
+      return Files.getLastModifiedTime(entry);
+    } catch (IOException e) {
+      return FileTime.fromMillis(0L);
+    }
+  }
+
+  private static boolean deleteQuietly(Path file) {
+    try {
+      return Files.deleteIfExists(file);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+}
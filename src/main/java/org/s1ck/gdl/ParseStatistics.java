@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how often two-stage parsing had to fall back from SLL to full LL prediction.
+ *
+ * The counters are shared by a {@link GDLHandler.Builder} and all handlers created by it.
+ */
+public class ParseStatistics {
+  /**
+   * Number of inputs parsed using two-stage parsing.
+   */
+  private final AtomicLong parseCount = new AtomicLong();
+
+  /**
+   * Number of inputs which had to be parsed again using LL prediction.
+   */
+  private final AtomicLong fallbackCount = new AtomicLong();
+
+  /**
+   * Returns the number of inputs parsed using two-stage parsing.
+   *
+   * @return number of two-stage parses
+   */
+  public long getParseCount() {
+    return parseCount.get();
+  }
+
+  /**
+   * Returns the number of inputs which could not be parsed using SLL prediction and had to be
+   * parsed again using full LL prediction.
+   *
+   * @return number of LL fallbacks
+   */
+  public long getFallbackCount() {
+    return fallbackCount.get();
+  }
+
+  /**
+   * Counts a two-stage parse.
+   */
+  void countParse() {
+    parseCount.incrementAndGet();
+  }
+
+  /**
+   * Counts a fallback to LL prediction.
+   */
+  void countFallback() {
+    fallbackCount.incrementAndGet();
+  }
+
+  @Override
+  public String toString() {
+    return "ParseStatistics{" +
+      "parseCount=" + getParseCount() +
+      ", fallbackCount=" + getFallbackCount() +
+      '}';
+  }
+}
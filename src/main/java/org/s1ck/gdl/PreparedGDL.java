@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl;
+
+import org.s1ck.gdl.exceptions.UnboundParameterException;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A GDL script with parameters like {@code $name}, which has been parsed once and can be bound to
+ * different parameter values many times (see {@link GDLHandler.Builder#prepare(String)}).
+ *
+ * Parameters may be used as property values and in comparisons of a query, e.g.
+ * {@code (alice:Person {name : $name})} or {@code MATCH (p:Person) WHERE p.age > $age}. When
+ * binding, property values become the given values and comparisons refer to literals.
+ */
+public class PreparedGDL {
+  /**
+   * Builder which provides the id functions.
+   */
+  private final GDLHandler.Builder builder;
+
+  /**
+   * Compiled script.
+   */
+  private final GDLTemplate template;
+
+  /**
+   * Creates a new prepared script.
+   *
+   * @param builder builder which provides the id functions
+   * @param template compiled script
+   */
+  PreparedGDL(GDLHandler.Builder builder, GDLTemplate template) {
+    this.builder = builder;
+    this.template = template;
+  }
+
+  /**
+   * Returns the names of all parameters used in the script.
+   *
+   * @return parameter names without the leading '$'
+   */
+  public Set<String> getParameterNames() {
+    return template.getParameterNames();
+  }
+
+  /**
+   * Initializes GDL Handler by binding the given values to the parameters of the script.
+   *
+   * @param parameters values by parameter name without the leading '$' (must not be {@code null}).
+   * @return GDL handler
+   * @throws UnboundParameterException if there is no value for a parameter of the script
+   */
+  public GDLHandler bind(Map<String, ?> parameters) {
+    return builder.buildFromTemplate(template, parameters);
+  }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl;
+
+import org.s1ck.gdl.model.Element;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Secondary index over the values of one property of all elements with a given label.
+ *
+ * Numbers are compared by their numeric value regardless of their type, i.e. {@code 30},
+ * {@code 30L} and {@code 30.0} are equal. Floats are compared by their decimal value, i.e.
+ * {@code 0.1f} equals {@code 0.1}, as GDL literals like {@code 0.1} are loaded as floats. A {@link Type#HASH} index supports equality lookups in
+ * O(1), a {@link Type#SORTED} index supports equality and range lookups in O(log n) over
+ * booleans, numbers and strings. Elements whose property is missing or {@code null} are not
+ * indexed.
+ *
+ * The index is created by {@link GDLHandler#createPropertyIndex(String, String, Type)} and
+ * updated whenever elements are added to the handler. Changes made to the labels or properties
+ * of indexed elements are not reflected.
+ *
+ * @param <E> element type
+ */
+public class PropertyIndex<E extends Element> {
+
+  /**
+   * Index structure.
+   */
+  public enum Type {
+    /**
+     * Hash table, which supports equality lookups.
+     */
+    HASH,
+    /**
+     * Sorted tree, which supports equality and range lookups.
+     */
+    SORTED
+  }
+
+  private static final int BOOLEAN_RANK = 0;
+  private static final int NUMBER_RANK = 1;
+  private static final int STRING_RANK = 2;
+
+  /**
+   * Label of the indexed elements.
+   */
+  private final String label;
+  /**
+   * Code of the label in the symbol dictionary of the handler.
+   */
+  private final int labelCode;
+  /**
+   * Indexed property key.
+   */
+  private final String key;
+  /**
+   * Index structure.
+   */
+  private final Type type;
+  /**
+   * Elements by value. Sorted indexes only store values here which cannot be ordered.
+   */
+  private final Map<Object, List<E>> values = new HashMap<>();
+  /**
+   * Elements by ordered value, one map per value type, or {@code null} for a hash index.
+   */
+  private final List<NavigableMap<Object, List<E>>> sortedValues;
+  /**
+   * Number of indexed elements.
+   */
+  private int size;
+
+  /**
+   * Creates an empty index.
+   *
+   * @param label label of the indexed elements
+   * @param labelCode code of the label
+   * @param key indexed property key
+   * @param type index structure
+   */
+  PropertyIndex(String label, int labelCode, String key, Type type) {
+    this.label = label;
+    this.labelCode = labelCode;
+    this.key = key;
+    this.type = type;
+    if (type == Type.SORTED) {
+      sortedValues = new ArrayList<>();
+      for (int rank = BOOLEAN_RANK; rank <= STRING_RANK; rank++) {
+        sortedValues.add(new TreeMap<>(PropertyIndex::compare));
+      }
+    } else {
+      sortedValues = null;
+    }
+  }
+
+  /**
+   * Returns the label of the indexed elements.
+   *
+   * @return label
+   */
+  public String getLabel() {
+    return label;
+  }
+
+  /**
+   * Returns the indexed property key.
+   *
+   * @return property key
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * Returns the index structure.
+   *
+   * @return index type
+   */
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Returns the number of indexed elements.
+   *
+   * @return number of elements
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the elements whose property is equal to the given value.
+   *
+   * @param value property value
+   * @return unmodifiable list of elements in insertion order
+   */
+  public List<E> get(Object value) {
+    Object normalized = normalize(value);
+    int rank = rank(normalized);
+    List<E> elements = sortedValues != null && rank >= 0 ?
+      sortedValues.get(rank).get(normalized) : values.get(normalized);
+    return elements != null ? Collections.unmodifiableList(elements) : Collections.emptyList();
+  }
+
+  /**
+   * Returns the elements whose property is within the given range. Both bounds need to be of the
+   * same type, i.e. booleans, numbers or strings.
+   *
+   * @param from lower bound or {@code null} if the range has no lower bound
+   * @param fromInclusive true, iff the lower bound is part of the range
+   * @param to upper bound or {@code null} if the range has no upper bound
+   * @param toInclusive true, iff the upper bound is part of the range
+   * @return elements ordered by value
+   * @throws UnsupportedOperationException if this is not a sorted index
+   */
+  public List<E> getRange(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+    if (sortedValues == null) {
+      throw new UnsupportedOperationException("Range lookups require a sorted index.");
+    }
+    if (from == null && to == null) {
+      throw new IllegalArgumentException("At least one bound must not be null.");
+    }
+    Object lower = normalize(from);
+    Object upper = normalize(to);
+    int rank = rank(lower != null ? lower : upper);
+    if (rank < 0 || (lower != null && upper != null && rank(upper) != rank)) {
+      throw new IllegalArgumentException("Bounds must be booleans, numbers or strings of the " +
+        "same type.");
+    }
+
+    NavigableMap<Object, List<E>> map = sortedValues.get(rank);
+    NavigableMap<Object, List<E>> range;
+    if (lower == null) {
+      range = map.headMap(upper, toInclusive);
+    } else if (upper == null) {
+      range = map.tailMap(lower, fromInclusive);
+    } else if (compare(lower, upper) > 0) {
+      return Collections.emptyList();
+    } else {
+      range = map.subMap(lower, fromInclusive, upper, toInclusive);
+    }
+    List<E> elements = new ArrayList<>();
+    range.values().forEach(elements::addAll);
+    return Collections.unmodifiableList(elements);
+  }
+
+  /**
+   * Returns the code of the label of the indexed elements.
+   *
+   * @return label code
+   */
+  int getLabelCode() {
+    return labelCode;
+  }
+
+  /**
+   * Adds an element, if it has the indexed label and property.
+   *
+   * @param element new element
+   */
+  void add(E element) {
+    if (!element.hasLabel(labelCode)) {
+      return;
+    }
+    Object value = normalize(element.getProperties().get(key));
+    if (value == null) {
+      return;
+    }
+    int rank = rank(value);
+    Map<Object, List<E>> map = sortedValues != null && rank >= 0 ? sortedValues.get(rank) : values;
+    map.computeIfAbsent(value, v -> new ArrayList<>()).add(element);
+    size++;
+  }
+
+  /**
+   * Converts numbers to {@code Long} if they are integral, otherwise to {@code Double}. Floats
+   * are converted through their shortest decimal representation, so {@code 0.1f} becomes
+   * {@code 0.1} instead of {@code 0.10000000149011612}.
+   *
+   * @param value property value
+   * @return normalized value
+   */
+  private static Object normalize(Object value) {
+    if (value instanceof Integer || value instanceof Long ||
+      value instanceof Short || value instanceof Byte) {
+      return ((Number) value).longValue();
+    }
+    if (value instanceof Float || value instanceof Double) {
+      double d = value instanceof Float ?
+        Double.parseDouble(value.toString()) : ((Number) value).doubleValue();
+      long l = (long) d;
+      return l == d && l != Long.MAX_VALUE && l != Long.MIN_VALUE ? (Object) l : (Object) d;
+    }
+    return value;
+  }
+
+  /**
+   * Returns the rank of an ordered value type.
+   *
+   * @param value normalized value
+   * @return rank or -1 if the value cannot be ordered
+   */
+  private static int rank(Object value) {
+    if (value instanceof Boolean) {
+      return BOOLEAN_RANK;
+    } else if (value instanceof Number) {
+      return NUMBER_RANK;
+    } else if (value instanceof String) {
+      return STRING_RANK;
+    }
+    return -1;
+  }
+
+  /**
+   * Compares two normalized values of the same rank.
+   *
+   * @param a first value
+   * @param b second value
+   * @return comparison result
+   */
+  @SuppressWarnings("unchecked")
+  private static int compare(Object a, Object b) {
+    if (a instanceof Long && b instanceof Double) {
+      return compareMixed((Long) a, (Double) b);
+    } else if (a instanceof Double && b instanceof Long) {
+      return -compareMixed((Long) b, (Double) a);
+    }
+    return ((Comparable<Object>) a).compareTo(b);
+  }
+
+  /**
+   * Compares a long with a double which is not equal to any long.
+   *
+   * @param l long value
+   * @param d double value
+   * @return comparison result
+   */
+  private static int compareMixed(long l, double d) {
+    int result = Double.compare((double) l, d);
+    if (result == 0) {
+      // d is integral but beyond the range of long
+      return d > 0 ? -1 : 1;
+    }
+    return result;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+import java.nio.file.Path;
+
+/**
+ * Parse listener which hands over each top-level statement to a {@link GDLLoader} as soon as the
+ * parser has recognized it.
+ *
+ * Processed statements are detached from the parse tree, so the tree never holds more than the
+ * statement which is currently parsed.
+ */
+class StatementListener extends GDLBaseListener {
+  /**
+   * Loader that processes the statements.
+   */
+  private final GDLLoader loader;
+
+  /**
+   * Walker used to process a single statement.
+   */
+  private final ParseTreeWalker walker;
+
+  /**
+   * File of the parsed script or {@code null}, if include paths are relative to the working
+   * directory.
+   */
+  private final Path source;
+
+  /**
+   * Creates a new statement listener.
+   *
+   * @param loader loader that processes the statements
+   * @param source file of the parsed script or {@code null}, if include paths are relative to
+   *               the working directory
+   */
+  StatementListener(GDLLoader loader, Path source) {
+    this.loader = loader;
+    this.walker = new ParseTreeWalker();
+    this.source = source;
+  }
+
+  /**
+   * Processes a graph, path or include definition and removes it (and all preceding separators)
+   * from the enclosing definitions context. Included files are parsed as a whole when the
+   * include statement has been recognized.
+   *
+   * @param ctx definition context
+   */
+  @Override
+  public void exitDefinition(GDLParser.DefinitionContext ctx) {
+    if (ctx.include() != null) {
+      loader.getIncludeResolver().resolve(ctx, source);
+    }
+    walker.walk(loader, ctx);
+    loader.flush();
+    ParserRuleContext definitions = ctx.getParent();
+    definitions.children.clear();
+  }
+
+  /**
+   * Processes a query.
+   *
+   * @param ctx query context
+   */
+  @Override
+  public void exitQuery(GDLParser.QueryContext ctx) {
+    walker.walk(loader, ctx);
+    loader.flush();
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a GDL script into chunks of complete top-level statements without parsing it.
+ *
+ * The splitter only tracks brackets, string literals and comments. A statement ends at a closing
+ * parenthesis or bracket on the top level which is not followed by an edge. Each chunk is a valid
+ * GDL script on its own if the input is valid. Queries are never split.
+ */
+class StatementSplitter {
+
+  /**
+   * A contiguous part of the input.
+   */
+  static class Chunk {
+    /**
+     * Offset of the first character.
+     */
+    final int start;
+    /**
+     * Offset after the last character.
+     */
+    final int end;
+    /**
+     * Line of the first character (starting at 1).
+     */
+    final int line;
+    /**
+     * Position of the first character in its line (starting at 0).
+     */
+    final int charPositionInLine;
+
+    Chunk(int start, int end, int line, int charPositionInLine) {
+      this.start = start;
+      this.end = end;
+      this.line = line;
+      this.charPositionInLine = charPositionInLine;
+    }
+  }
+
+  private final String input;
+
+  // scanner position and location
+  private int pos;
+  private int line;
+  private int lineStart;
+
+  private StatementSplitter(String input) {
+    this.input = input;
+  }
+
+  /**
+   * Splits the given GDL script into at most {@code maxChunks} chunks of similar size.
+   *
+   * @param input GDL script
+   * @param maxChunks maximum number of chunks
+   * @return chunks in input order
+   */
+  static List<Chunk> split(String input, int maxChunks) {
+    return new StatementSplitter(input).split(maxChunks);
+  }
+
+  private List<Chunk> split(int maxChunks) {
+    List<Chunk> chunks = new ArrayList<>();
+    int targetSize = Math.max(1, input.length() / Math.max(1, maxChunks));
+
+    pos = 0;
+    line = 1;
+    lineStart = 0;
+
+    int chunkStart = 0;
+    int chunkLine = 1;
+    int chunkCharPosition = 0;
+    int depth = 0;
+    boolean pendingStatement = false;
+
+    skipIgnored();
+    if (input.startsWith("MATCH", pos)) {
+      chunks.add(new Chunk(0, input.length(), 1, 0));
+      return chunks;
+    }
+
+    while (pos < input.length()) {
+      char c = input.charAt(pos);
+      if (c == '"' || c == '\'') {
+        skipString(c);
+        continue;
+      }
+      if (input.startsWith("//", pos) || input.startsWith("/*", pos)) {
+        skipIgnored();
+        continue;
+      }
+      advance();
+      if (c == '(' || c == '[' || c == '{') {
+        depth++;
+      } else if (c == ')' || c == ']' || c == '}') {
+        depth--;
+        if (depth == 0 && c != '}') {
+          skipIgnored();
+          if (pos < input.length() && (input.charAt(pos) == '-' || input.charAt(pos) == '<')) {
+            continue;
+          }
+          if (pos < input.length() && input.charAt(pos) == ',') {
+            advance();
+          }
+          pendingStatement = true;
+          if (pos - chunkStart >= targetSize && chunks.size() < maxChunks - 1) {
+            chunks.add(new Chunk(chunkStart, pos, chunkLine, chunkCharPosition));
+            chunkStart = pos;
+            chunkLine = line;
+            chunkCharPosition = pos - lineStart;
+            pendingStatement = false;
+          }
+        }
+      }
+    }
+
+    if (pendingStatement || chunks.isEmpty()) {
+      chunks.add(new Chunk(chunkStart, input.length(), chunkLine, chunkCharPosition));
+    } else if (chunkStart < input.length()) {
+      // attach trailing whitespace and comments to the last chunk
+      Chunk last = chunks.remove(chunks.size() - 1);
+      chunks.add(new Chunk(last.start, input.length(), last.line, last.charPositionInLine));
+    }
+    return chunks;
+  }
+
+  /**
+   * Moves to the next character and keeps track of line breaks.
+   */
+  private void advance() {
+    if (input.charAt(pos) == '\n') {
+      line++;
+      lineStart = pos + 1;
+    }
+    pos++;
+  }
+
+  /**
+   * Skips a string literal starting at the current position.
+   *
+   * @param quote opening quote
+   */
+  private void skipString(char quote) {
+    advance();
+    while (pos < input.length()) {
+      char c = input.charAt(pos);
+      advance();
+      if (c == '\\' && pos < input.length()) {
+        advance();
+      } else if (c == quote) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Skips whitespace and comments.
+   */
+  private void skipIgnored() {
+    while (pos < input.length()) {
+      char c = input.charAt(pos);
+      if (Character.isWhitespace(c)) {
+        advance();
+      } else if (input.startsWith("//", pos)) {
+        while (pos < input.length() && input.charAt(pos) != '\n' && input.charAt(pos) != '\r') {
+          advance();
+        }
+      } else if (input.startsWith("/*", pos)) {
+        int end = input.indexOf("*/", pos + 2);
+        end = end < 0 ? input.length() : end + 2;
+        while (pos < end) {
+          advance();
+        }
+      } else {
+        return;
+      }
+    }
+  }
+}
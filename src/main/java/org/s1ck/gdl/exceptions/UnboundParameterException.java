@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.exceptions;
+
+/**
+ * Raised when binding a prepared script and no value was given for one of its parameters.
+ */
+public class UnboundParameterException extends RuntimeException {
+
+  /**
+   * Creates a new exception
+   *
+   * @param parameter the name of the parameter which could not be bound
+   */
+  public UnboundParameterException(String parameter) {
+    super("No value was bound to parameter '$" + parameter + "'");
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.io;
+
+import org.antlr.v4.runtime.UnbufferedCharStream;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Character stream which decompresses gzip-compressed input on demand.
+ *
+ * Neither the compressed nor the decompressed content is held in memory as a whole. Only the
+ * characters of the current token (and lookahead) are buffered, so lexers reading from this
+ * stream need to copy the token text, e.g. by using a
+ * {@link org.antlr.v4.runtime.CommonTokenFactory} with {@code copyText} enabled.
+ */
+public class GzipCharStream extends UnbufferedCharStream implements Closeable {
+  /**
+   * Number of bytes and characters which are decompressed at once.
+   */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * First byte of the gzip header.
+   */
+  private static final int MAGIC_0 = 0x1f;
+
+  /**
+   * Second byte of the gzip header.
+   */
+  private static final int MAGIC_1 = 0x8b;
+
+  /**
+   * Creates a new stream for the given compressed input using the platform default charset.
+   *
+   * @param stream gzip-compressed input
+   * @throws IOException if the gzip header cannot be read
+   */
+  public GzipCharStream(InputStream stream) throws IOException {
+    this(stream, Charset.defaultCharset());
+  }
+
+  /**
+   * Creates a new stream for the given compressed input.
+   *
+   * @param stream gzip-compressed input
+   * @param charset encoding of the decompressed content
+   * @throws IOException if the gzip header cannot be read
+   */
+  public GzipCharStream(InputStream stream, Charset charset) throws IOException {
+    super(createReader(stream, charset));
+  }
+
+  /**
+   * Creates a new stream for the given compressed file using the platform default charset.
+   *
+   * @param fileName file name
+   * @throws IOException if the file cannot be opened
+   */
+  public GzipCharStream(String fileName) throws IOException {
+    this(fileName, Charset.defaultCharset());
+  }
+
+  /**
+   * Creates a new stream for the given compressed file.
+   *
+   * @param fileName file name
+   * @param charset encoding of the decompressed content
+   * @throws IOException if the file cannot be opened or is not gzip-compressed
+   */
+  public GzipCharStream(String fileName, Charset charset) throws IOException {
+    super(openReader(fileName, charset));
+    this.name = fileName;
+  }
+
+  /**
+   * Creates a reader which decompresses the given input.
+   *
+   * @param stream gzip-compressed input
+   * @param charset encoding of the decompressed content
+   * @return buffered reader
+   * @throws IOException if the gzip header cannot be read
+   */
+  private static BufferedReader createReader(InputStream stream, Charset charset)
+    throws IOException {
+    return new BufferedReader(
+      new InputStreamReader(new GZIPInputStream(stream, BUFFER_SIZE), charset), BUFFER_SIZE);
+  }
+
+  /**
+   * Opens a reader which decompresses the given file. The file is closed if the reader cannot
+   * be created, since the stream is not constructed in that case.
+   *
+   * @param fileName file name
+   * @param charset encoding of the decompressed content
+   * @return buffered reader, which has read the first characters
+   * @throws IOException if the file cannot be opened or is not gzip-compressed
+   */
+  private static BufferedReader openReader(String fileName, Charset charset) throws IOException {
+    InputStream stream = Files.newInputStream(Paths.get(fileName));
+    try {
+      BufferedReader reader = createReader(stream, charset);
+      // the super constructor reads the first character, which must not fail after this method
+      reader.mark(1);
+      reader.read();
+      reader.reset();
+      return reader;
+    } catch (IOException | RuntimeException e) {
+      try {
+        stream.close();
+      } catch (IOException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Checks if the given stream starts with the gzip header without consuming it.
+   *
+   * @param stream input stream which supports {@link InputStream#mark(int)}
+   * @return true, iff the stream is gzip-compressed
+   * @throws IOException if the stream cannot be read
+   */
+  public static boolean isCompressed(InputStream stream) throws IOException {
+    if (!stream.markSupported()) {
+      throw new IllegalArgumentException("InputStream must support mark.");
+    }
+    stream.mark(2);
+    try {
+      return stream.read() == MAGIC_0 && stream.read() == MAGIC_1;
+    } finally {
+      stream.reset();
+    }
+  }
+
+  /**
+   * Checks if the given file starts with the gzip header.
+   *
+   * @param fileName file name
+   * @return true, iff the file is gzip-compressed
+   * @throws IOException if the file cannot be read
+   */
+  public static boolean isCompressed(String fileName) throws IOException {
+    try (InputStream stream = Files.newInputStream(Paths.get(fileName))) {
+      return stream.read() == MAGIC_0 && stream.read() == MAGIC_1;
+    }
+  }
+
+  /**
+   * Closes the underlying input.
+   *
+   * @throws IOException if the input cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.io;
+
+import org.antlr.v4.runtime.UnbufferedCharStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Character stream which reads a file through memory-mapped windows and decodes it on demand.
+ *
+ * In contrast to {@link org.antlr.v4.runtime.ANTLRFileStream}, the file content is never copied
+ * into the heap as a whole. Only the characters of the current token (and lookahead) are buffered,
+ * so lexers reading from this stream need to copy the token text, e.g. by using a
+ * {@link org.antlr.v4.runtime.CommonTokenFactory} with {@code copyText} enabled.
+ *
+ * The stream only bounds the memory used for characters. A buffering token stream, such as
+ * {@link org.antlr.v4.runtime.CommonTokenStream}, still keeps every token and its text, so memory
+ * stays bounded only when the stream is combined with an
+ * {@link org.antlr.v4.runtime.UnbufferedTokenStream} and no parse tree is built.
+ */
+public class MappedFileCharStream extends UnbufferedCharStream implements Closeable {
+  /**
+   * Number of bytes which are mapped at once by default.
+   */
+  public static final int DEFAULT_WINDOW_SIZE = 1 << 24;
+
+  /**
+   * Minimum window size, which is large enough to hold any encoded character.
+   */
+  public static final int MIN_WINDOW_SIZE = 16;
+
+  /**
+   * Creates a new stream for the given file using the platform default charset.
+   *
+   * @param fileName file name
+   * @throws IOException if the file cannot be opened
+   */
+  public MappedFileCharStream(String fileName) throws IOException {
+    this(fileName, Charset.defaultCharset());
+  }
+
+  /**
+   * Creates a new stream for the given file.
+   *
+   * @param fileName file name
+   * @param charset file encoding
+   * @throws IOException if the file cannot be opened
+   */
+  public MappedFileCharStream(String fileName, Charset charset) throws IOException {
+    this(fileName, charset, DEFAULT_WINDOW_SIZE);
+  }
+
+  /**
+   * Creates a new stream for the given file.
+   *
+   * @param fileName file name
+   * @param charset file encoding
+   * @param windowSize number of bytes which are mapped at once (at least {@link #MIN_WINDOW_SIZE})
+   * @throws IOException if the file cannot be opened
+   */
+  public MappedFileCharStream(String fileName, Charset charset, int windowSize)
+    throws IOException {
+    super(new MappedFileReader(fileName, charset, windowSize));
+    this.name = fileName;
+  }
+
+  /**
+   * Closes the underlying file.
+   *
+   * @throws IOException if the file cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    input.close();
+  }
+
+  /**
+   * Reader which decodes a file window by window.
+   */
+  private static class MappedFileReader extends Reader {
+    /**
+     * Number of decoded characters which are buffered.
+     */
+    private static final int CHAR_BUFFER_SIZE = 8192;
+    /**
+     * File to read.
+     */
+    private final FileChannel channel;
+    /**
+     * Decoder for the file encoding.
+     */
+    private final CharsetDecoder decoder;
+    /**
+     * File size in bytes.
+     */
+    private final long size;
+    /**
+     * Number of bytes which are mapped at once.
+     */
+    private final int windowSize;
+    /**
+     * Decoded characters which have not been read yet.
+     */
+    private final CharBuffer chars;
+    /**
+     * File position of the current window.
+     */
+    private long windowStart;
+    /**
+     * Currently mapped part of the file.
+     */
+    private MappedByteBuffer window;
+    /**
+     * True, iff all bytes of the file have been decoded.
+     */
+    private boolean endOfInput;
+
+    MappedFileReader(String fileName, Charset charset, int windowSize) throws IOException {
+      if (windowSize < MIN_WINDOW_SIZE) {
+        throw new IllegalArgumentException("Window size must be at least " + MIN_WINDOW_SIZE + ".");
+      }
+      this.channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+      this.decoder = charset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      this.size = channel.size();
+      this.windowSize = windowSize;
+      this.chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+      this.chars.flip();
+      this.windowStart = 0L;
+      map();
+    }
+
+    @Override
+    public int read() throws IOException {
+      return fill() ? chars.get() : -1;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!fill()) {
+        return -1;
+      }
+      int n = Math.min(len, chars.remaining());
+      chars.get(cbuf, off, n);
+      return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+      window = null;
+      channel.close();
+    }
+
+    /**
+     * Decodes the next characters if all buffered characters have been read.
+     *
+     * @return true, iff there are characters to read
+     * @throws IOException if the file cannot be mapped or decoded
+     */
+    private boolean fill() throws IOException {
+      if (chars.hasRemaining()) {
+        return true;
+      }
+      chars.clear();
+      while (chars.position() == 0) {
+        if (endOfInput) {
+          decoder.flush(chars);
+          break;
+        }
+        boolean lastWindow = windowStart + window.limit() == size;
+        CoderResult result = decoder.decode(window, chars, lastWindow);
+        if (result.isError()) {
+          result.throwException();
+        }
+        if (result.isUnderflow()) {
+          if (lastWindow) {
+            endOfInput = true;
+          } else {
+            // continue at the first byte which has not been decoded yet
+            windowStart += window.position();
+            map();
+          }
+        }
+      }
+      chars.flip();
+      return chars.hasRemaining();
+    }
+
+    /**
+     * Maps the window starting at the current window position.
+     *
+     * @throws IOException if the file cannot be mapped
+     */
+    private void map() throws IOException {
+      long length = Math.min(windowSize, size - windowStart);
+      window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, length);
+    }
+  }
+}
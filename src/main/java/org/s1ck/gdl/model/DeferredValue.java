@@ -0,0 +1,30 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.model;
+
+/**
+ * Property value which is decoded on first access. An element replaces the deferred value by
+ * the decoded one, i.e. {@link Element#getProperties()} never returns deferred values.
+ */
+public interface DeferredValue {
+  /**
+   * Decodes the value.
+   *
+   * @return property value
+   */
+  Object decode();
+}
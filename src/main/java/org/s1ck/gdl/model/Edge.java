@@ -19,9 +19,14 @@ package org.s1ck.gdl.model;
 import java.util.List;
 
 public class Edge extends GraphElement {
-  private Long sourceVertexId;
+  private long sourceVertexId;
 
-  private Long targetVertexId;
+  private long targetVertexId;
+
+  // source and target are unknown until the adjacent vertices have been parsed
+  private boolean hasSourceVertexId;
+
+  private boolean hasTargetVertexId;
 
   private int lowerBound;
 
@@ -33,20 +38,80 @@ public class Edge extends GraphElement {
     upperBound = 1;
   }
 
-  public Long getSourceVertexId() {
+  public Edge(SymbolDictionary symbols) {
+    super(symbols);
+    lowerBound = 1;
+    upperBound = 1;
+  }
+
+  public boolean hasSourceVertexId() {
+    return hasSourceVertexId;
+  }
+
+  public long getSourceId() {
+    if (!hasSourceVertexId) {
+      throw new IllegalStateException("Source vertex identifier has not been set.");
+    }
     return sourceVertexId;
   }
 
-  public void setSourceVertexId(Long sourceVertexId) {
+  public void setSourceVertexId(long sourceVertexId) {
     this.sourceVertexId = sourceVertexId;
+    this.hasSourceVertexId = true;
   }
 
-  public Long getTargetVertexId() {
+  public boolean hasTargetVertexId() {
+    return hasTargetVertexId;
+  }
+
+  public long getTargetId() {
+    if (!hasTargetVertexId) {
+      throw new IllegalStateException("Target vertex identifier has not been set.");
+    }
     return targetVertexId;
   }
 
-  public void setTargetVertexId(Long targetVertexId) {
+  public void setTargetVertexId(long targetVertexId) {
     this.targetVertexId = targetVertexId;
+    this.hasTargetVertexId = true;
+  }
+
+  /**
+   * Returns the boxed source vertex identifier, use {@link #getSourceId()} to avoid boxing.
+   *
+   * @return source vertex identifier or {@code null} if it has not been set
+   */
+  public Long getSourceVertexId() {
+    return hasSourceVertexId ? sourceVertexId : null;
+  }
+
+  /**
+   * Sets or clears the source vertex identifier.
+   *
+   * @param sourceVertexId source vertex identifier or {@code null}
+   */
+  public void setSourceVertexId(Long sourceVertexId) {
+    this.sourceVertexId = sourceVertexId != null ? sourceVertexId : 0L;
+    this.hasSourceVertexId = sourceVertexId != null;
+  }
+
+  /**
+   * Returns the boxed target vertex identifier, use {@link #getTargetId()} to avoid boxing.
+   *
+   * @return target vertex identifier or {@code null} if it has not been set
+   */
+  public Long getTargetVertexId() {
+    return hasTargetVertexId ? targetVertexId : null;
+  }
+
+  /**
+   * Sets or clears the target vertex identifier.
+   *
+   * @param targetVertexId target vertex identifier or {@code null}
+   */
+  public void setTargetVertexId(Long targetVertexId) {
+    this.targetVertexId = targetVertexId != null ? targetVertexId : 0L;
+    this.hasTargetVertexId = targetVertexId != null;
   }
 
   public boolean hasVariableLength() {
@@ -75,8 +140,8 @@ public class Edge extends GraphElement {
       "id=" + getId() +
       ", label='" + getLabel() + '\'' +
       ", properties=" + getProperties() +
-      ", sourceVertexId=" + sourceVertexId +
-      ", targetVertexId=" + targetVertexId;
+      ", sourceVertexId=" + getSourceVertexId() +
+      ", targetVertexId=" + getTargetVertexId();
 
     if(hasVariableLength()) {
       out = out +
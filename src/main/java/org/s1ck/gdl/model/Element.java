@@ -16,23 +16,65 @@
 
 package org.s1ck.gdl.model;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
 
 public class Element {
 
-  private Long id;
+  private static final Object[] NO_VALUES = new Object[0];
 
-  private List<String> labels;
+  private long id;
 
-  private Map<String, Object> properties;
+  // encodes the labels
+  private final SymbolDictionary symbols;
 
+  // label codes or null if labels have not been set
+  private int[] labels;
+
+  // property keys are stored in the shared shape, values by slot
+  private PropertyShape propertyShape;
+
+  // values by slot or null if they are stored off-heap
+  private Object[] propertyValues;
+
+  // stores the values off-heap, if set
+  private OffHeapPropertyStore propertyStore;
+
+  // address of the values in the property store
+  private long propertyAddress;
+
+  // variable or, if the variable is anonymous, its prefix
   private String variable;
 
+  // true, iff the variable consists of the prefix and the id
+  private boolean anonymousVariable;
+
+  /**
+   * Creates a new element whose labels and property keys are encoded by a dictionary shared by
+   * all elements created this way. The shared dictionary keeps every symbol for the lifetime of
+   * the JVM, so elements with many distinct labels should use {@link #Element(SymbolDictionary)}.
+   */
   public Element() {
-    properties = new HashMap<>();
+    this(SymbolDictionary.DEFAULT);
+  }
+
+  /**
+   * Creates a new element whose labels are encoded by the given dictionary.
+   *
+   * @param symbols symbol dictionary
+   */
+  public Element(SymbolDictionary symbols) {
+    this.symbols = symbols;
+    propertyShape = symbols.getEmptyShape();
+    propertyValues = NO_VALUES;
   }
 
   public long getId() {
@@ -44,39 +86,223 @@ public class Element {
   }
 
   public String getLabel() {
-    return (labels.size() > 0) ? labels.get(0) : null;
+    return (labels.length > 0) ? symbols.decode(labels[0]) : null;
   }
 
   public void setLabel(String label) {
-    this.labels = Collections.singletonList(label);
+    this.labels = new int[] {symbols.encode(label)};
   }
 
+  /**
+   * Returns a modifiable view of the labels, changes are written through to the element.
+   *
+   * @return labels or {@code null} if they have not been set
+   */
   public List<String> getLabels() {
-    return this.labels;
+    return labels != null ? new LabelList() : null;
   }
 
   public void setLabels(List<String> labels) {
-    this.labels = labels;
+    if (labels == null) {
+      this.labels = null;
+    } else {
+      int[] codes = new int[labels.size()];
+      for (int i = 0; i < codes.length; i++) {
+        codes[i] = symbols.encode(labels.get(i));
+      }
+      this.labels = codes;
+    }
+  }
+
+  /**
+   * Returns the dictionary which encodes the labels of this element.
+   *
+   * @return symbol dictionary
+   */
+  public SymbolDictionary getSymbolDictionary() {
+    return symbols;
+  }
+
+  /**
+   * Returns the codes of the labels, see {@link #getSymbolDictionary()}.
+   *
+   * @return label codes or {@code null} if labels have not been set
+   */
+  public int[] getLabelCodes() {
+    return labels != null ? labels.clone() : null;
+  }
+
+  /**
+   * Checks if the element has the label with the given code without decoding its labels.
+   *
+   * @param code label code
+   * @return true, iff the element has the label
+   */
+  public boolean hasLabel(int code) {
+    if (labels != null) {
+      for (int label : labels) {
+        if (label == code) {
+          return true;
+        }
+      }
+    }
+    return false;
   }
 
   public String getVariable() {
-    return variable;
+    return anonymousVariable ? variable + id : variable;
   }
 
   public void setVariable(String variable) {
     this.variable = variable;
+    this.anonymousVariable = false;
   }
 
+  /**
+   * Sets an auto-generated variable, which consists of the given prefix and the identifier and is
+   * created on access.
+   *
+   * @param prefix variable prefix
+   */
+  public void setAnonymousVariable(String prefix) {
+    this.variable = prefix;
+    this.anonymousVariable = true;
+  }
+
+  /**
+   * Returns true, iff the variable has been set by {@link #setAnonymousVariable(String)}.
+   *
+   * @return true, iff the variable is auto-generated
+   */
+  public boolean hasAnonymousVariable() {
+    return anonymousVariable;
+  }
+
+  /**
+   * Returns a modifiable view of the properties, which iterates them in insertion order.
+   *
+   * @return properties
+   */
   public Map<String, Object> getProperties() {
-    return properties;
+    return new PropertyMap();
   }
 
+  /**
+   * Moves the property values into the given store, which holds them off-heap and decodes them
+   * on access. Values which cannot be stored off-heap (see
+   * {@link OffHeapPropertyStore#isSupported(Object)}) are kept on the heap, as well as the values
+   * of elements which have no properties.
+   *
+   * @param propertyStore off-heap store or {@code null} to move the values back to the heap
+   */
+  public void setPropertyStore(OffHeapPropertyStore propertyStore) {
+    Object[] values = getPropertyValues();
+    this.propertyStore = propertyStore;
+    setPropertyValues(propertyShape, values);
+  }
+
+  /**
+   * Returns the store which holds the property values off-heap.
+   *
+   * @return property store or {@code null}
+   */
+  public OffHeapPropertyStore getPropertyStore() {
+    return propertyStore;
+  }
+
+  /**
+   * Replaces all properties by a copy of the given ones.
+   *
+   * @param properties properties or {@code null} to remove all properties
+   */
   public void setProperties(Map<String, Object> properties) {
-    this.properties = properties;
+    PropertyShape shape = symbols.getEmptyShape();
+    Object[] values = properties == null || properties.isEmpty() ?
+      NO_VALUES : new Object[properties.size()];
+    if (properties != null) {
+      for (Map.Entry<String, Object> property : properties.entrySet()) {
+        shape = shape.with(property.getKey());
+        values[shape.size() - 1] = property.getValue();
+      }
+    }
+    setPropertyValues(shape, values);
   }
 
   public void addProperty(String key, Object value) {
-    properties.put(key, value);
+    int slot = propertyShape.indexOf(key);
+    if (slot < 0) {
+      PropertyShape shape = propertyShape.with(key);
+      Object[] values = Arrays.copyOf(getPropertyValues(), shape.size());
+      values[shape.size() - 1] = value;
+      setPropertyValues(shape, values);
+    } else {
+      setPropertyValue(slot, value);
+    }
+  }
+
+  private void removeProperty(int slot) {
+    Object[] oldValues = getPropertyValues();
+    Object[] values = new Object[oldValues.length - 1];
+    System.arraycopy(oldValues, 0, values, 0, slot);
+    System.arraycopy(oldValues, slot + 1, values, slot, values.length - slot);
+    setPropertyValues(propertyShape.without(slot), values);
+  }
+
+  private Object getPropertyValue(int slot) {
+    if (propertyValues == null) {
+      return propertyStore.read(propertyAddress, slot);
+    }
+    Object value = propertyValues[slot];
+    if (value instanceof DeferredValue) {
+      value = ((DeferredValue) value).decode();
+      propertyValues[slot] = value;
+    }
+    return value;
+  }
+
+  private void setPropertyValue(int slot, Object value) {
+    if (propertyValues != null && (propertyStore == null ||
+      !OffHeapPropertyStore.isSupported(value))) {
+      propertyValues[slot] = value;
+    } else {
+      Object[] values = getPropertyValues().clone();
+      values[slot] = value;
+      setPropertyValues(propertyShape, values);
+    }
+  }
+
+  /**
+   * Returns the property values, which must not be modified if they are stored on the heap.
+   *
+   * @return values by slot
+   */
+  private Object[] getPropertyValues() {
+    if (propertyValues == null) {
+      return propertyStore.readAll(propertyAddress, propertyShape.size());
+    }
+    for (int slot = 0; slot < propertyValues.length; slot++) {
+      getPropertyValue(slot);
+    }
+    return propertyValues;
+  }
+
+  private void setPropertyValues(PropertyShape shape, Object[] values) {
+    propertyShape = shape;
+    if (propertyStore != null && values.length > 0 && isStorable(values)) {
+      propertyAddress = propertyStore.write(values);
+      propertyValues = null;
+    } else {
+      propertyValues = values.length == 0 ? NO_VALUES : values;
+    }
+  }
+
+  private static boolean isStorable(Object[] values) {
+    for (Object value : values) {
+      if (!OffHeapPropertyStore.isSupported(value)) {
+        return false;
+      }
+    }
+    return true;
   }
 
   public String referenceString() {
@@ -94,12 +320,162 @@ public class Element {
 
     Element element = (Element) o;
 
-    return !(id != null ? !id.equals(element.id) : element.id != null);
-
+    return id == element.id;
   }
 
   @Override
   public int hashCode() {
-    return id != null ? id.hashCode() : 0;
+    return Long.hashCode(id);
+  }
+
+  /**
+   * List view of the label codes, which writes changes through to the element.
+   */
+  private class LabelList extends AbstractList<String> implements RandomAccess {
+    @Override
+    public String get(int index) {
+      return symbols.decode(labels[index]);
+    }
+
+    @Override
+    public String set(int index, String label) {
+      String previous = get(index);
+      labels[index] = symbols.encode(label);
+      return previous;
+    }
+
+    @Override
+    public void add(int index, String label) {
+      if (index < 0 || index > labels.length) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + labels.length);
+      }
+      int[] codes = new int[labels.length + 1];
+      System.arraycopy(labels, 0, codes, 0, index);
+      codes[index] = symbols.encode(label);
+      System.arraycopy(labels, index, codes, index + 1, labels.length - index);
+      labels = codes;
+      modCount++;
+    }
+
+    @Override
+    public String remove(int index) {
+      String previous = get(index);
+      int[] codes = new int[labels.length - 1];
+      System.arraycopy(labels, 0, codes, 0, index);
+      System.arraycopy(labels, index + 1, codes, index, codes.length - index);
+      labels = codes;
+      modCount++;
+      return previous;
+    }
+
+    @Override
+    public int size() {
+      return labels.length;
+    }
+  }
+
+  /**
+   * Map view of the property shape and values.
+   */
+  private class PropertyMap extends AbstractMap<String, Object> {
+    @Override
+    public int size() {
+      return propertyShape.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return propertyShape.indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+      int slot = propertyShape.indexOf(key);
+      return slot >= 0 ? getPropertyValue(slot) : null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+      Object previous = get(key);
+      addProperty(key, value);
+      return previous;
+    }
+
+    @Override
+    public Object remove(Object key) {
+      int slot = propertyShape.indexOf(key);
+      if (slot < 0) {
+        return null;
+      }
+      Object previous = getPropertyValue(slot);
+      removeProperty(slot);
+      return previous;
+    }
+
+    @Override
+    public void clear() {
+      propertyShape = symbols.getEmptyShape();
+      propertyValues = NO_VALUES;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return new AbstractSet<Entry<String, Object>>() {
+        @Override
+        public int size() {
+          return propertyShape.size();
+        }
+
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+          return new Iterator<Entry<String, Object>>() {
+            private int next = 0;
+            private boolean removable = false;
+
+            @Override
+            public boolean hasNext() {
+              return next < propertyShape.size();
+            }
+
+            @Override
+            public Entry<String, Object> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              removable = true;
+              return new PropertyEntry(next++);
+            }
+
+            @Override
+            public void remove() {
+              if (!removable) {
+                throw new IllegalStateException();
+              }
+              // the remaining slots move down by one
+              removeProperty(--next);
+              removable = false;
+            }
+          };
+        }
+      };
+    }
+  }
+
+  /**
+   * Property at a slot, which writes values through to the element.
+   */
+  private class PropertyEntry extends AbstractMap.SimpleEntry<String, Object> {
+    private final int slot;
+
+    PropertyEntry(int slot) {
+      super(propertyShape.getKey(slot), getPropertyValue(slot));
+      this.slot = slot;
+    }
+
+    @Override
+    public Object setValue(Object value) {
+      setPropertyValue(slot, value);
+      return super.setValue(value);
+    }
   }
 }
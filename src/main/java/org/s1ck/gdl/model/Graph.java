@@ -18,6 +18,13 @@ package org.s1ck.gdl.model;
 
 public class Graph extends Element {
 
+  public Graph() {
+  }
+
+  public Graph(SymbolDictionary symbols) {
+    super(symbols);
+  }
+
   @Override
   public String toString() {
     return "Graph{" + ",\n" +
@@ -16,22 +16,267 @@
 
 package org.s1ck.gdl.model;
 
-import java.util.HashSet;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 public class GraphElement extends Element {
 
-  private Set<Long> graphs;
+  /**
+   * Maximum number of graphs stored in a sorted array before a bitmap is considered.
+   */
+  private static final int MAX_ARRAY_SIZE = 16;
+
+  // Graph membership is stored in one of three forms:
+  // - single graph: graphData is null and graphId holds the identifier
+  // - sorted array: graphData holds the identifiers in its first graphCount entries
+  // - bitmap: graphData holds bit words, bit i represents identifier graphId + i
+  private int graphCount;
+
+  private long graphId;
+
+  private long[] graphData;
+
+  private boolean bitmap;
 
   public GraphElement() {
-    graphs = new HashSet<>();
   }
 
-  public void addToGraph(Long graphId) {
-    graphs.add(graphId);
+  public GraphElement(SymbolDictionary symbols) {
+    super(symbols);
+  }
+
+  public void addToGraph(long graphId) {
+    if (graphCount == 0) {
+      this.graphId = graphId;
+      graphCount = 1;
+    } else if (graphData == null) {
+      if (this.graphId != graphId) {
+        graphData = this.graphId < graphId ?
+          new long[] {this.graphId, graphId} : new long[] {graphId, this.graphId};
+        graphCount = 2;
+      }
+    } else if (bitmap) {
+      addToBitmap(graphId);
+    } else {
+      addToArray(graphId);
+    }
+  }
+
+  public boolean removeFromGraph(long graphId) {
+    if (!isInGraph(graphId)) {
+      return false;
+    }
+    if (graphData == null) {
+      graphCount = 0;
+    } else if (bitmap) {
+      long offset = graphId - this.graphId;
+      graphData[(int) (offset >>> 6)] &= ~(1L << offset);
+      graphCount--;
+      if (graphCount <= MAX_ARRAY_SIZE / 2) {
+        long[] ids = getGraphIds();
+        bitmap = false;
+        graphData = ids;
+      }
+    } else {
+      int index = Arrays.binarySearch(graphData, 0, graphCount, graphId);
+      System.arraycopy(graphData, index + 1, graphData, index, graphCount - index - 1);
+      graphCount--;
+      if (graphCount == 1) {
+        this.graphId = graphData[0];
+        graphData = null;
+      }
+    }
+    return true;
   }
 
+  /**
+   * Checks if this element is contained in the given graph without allocating memory.
+   *
+   * @param graphId graph identifier
+   * @return true, iff the element is contained in the graph
+   */
+  public boolean isInGraph(long graphId) {
+    if (graphCount == 0) {
+      return false;
+    }
+    if (graphData == null) {
+      return this.graphId == graphId;
+    }
+    if (bitmap) {
+      long offset = graphId - this.graphId;
+      return offset >= 0 && offset < (long) graphData.length << 6 &&
+        (graphData[(int) (offset >>> 6)] & (1L << offset)) != 0;
+    }
+    return Arrays.binarySearch(graphData, 0, graphCount, graphId) >= 0;
+  }
+
+  public int getGraphCount() {
+    return graphCount;
+  }
+
+  /**
+   * Returns the identifiers of all graphs containing this element.
+   *
+   * @return sorted graph identifiers
+   */
+  public long[] getGraphIds() {
+    if (graphCount == 0) {
+      return new long[0];
+    }
+    if (graphData == null) {
+      return new long[] {graphId};
+    }
+    if (!bitmap) {
+      return Arrays.copyOf(graphData, graphCount);
+    }
+    long[] ids = new long[graphCount];
+    int i = 0;
+    for (int word = 0; word < graphData.length; word++) {
+      for (long bits = graphData[word]; bits != 0; bits &= bits - 1) {
+        ids[i++] = graphId + ((long) word << 6) + Long.numberOfTrailingZeros(bits);
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Returns a modifiable view of the graph identifiers. Use {@link #isInGraph(long)},
+   * {@link #getGraphIds()} or {@link #getGraphCount()} to avoid boxing.
+   *
+   * @return graph identifiers
+   */
   public Set<Long> getGraphs() {
-    return graphs;
+    return new GraphSet();
+  }
+
+  private void addToArray(long graphId) {
+    int index = Arrays.binarySearch(graphData, 0, graphCount, graphId);
+    if (index >= 0) {
+      return;
+    }
+    index = -index - 1;
+    if (graphCount == graphData.length) {
+      graphData = Arrays.copyOf(graphData, graphCount * 2);
+    }
+    System.arraycopy(graphData, index, graphData, index + 1, graphCount - index);
+    graphData[index] = graphId;
+    graphCount++;
+    if (graphCount > MAX_ARRAY_SIZE &&
+      bitmapSize(graphData[0], graphData[graphCount - 1]) <= graphCount) {
+      long[] ids = Arrays.copyOf(graphData, graphCount);
+      toBitmap(ids, ids[0], ids[ids.length - 1]);
+    }
+  }
+
+  private void addToBitmap(long graphId) {
+    if (isInGraph(graphId)) {
+      return;
+    }
+    long offset = graphId - this.graphId;
+    if (offset >= 0 && offset < (long) graphData.length << 6) {
+      graphData[(int) (offset >>> 6)] |= 1L << offset;
+      graphCount++;
+      return;
+    }
+    long[] ids = getGraphIds();
+    long min = Math.min(ids[0], graphId);
+    long max = Math.max(ids[ids.length - 1], graphId);
+    long[] newIds = Arrays.copyOf(ids, ids.length + 1);
+    newIds[ids.length] = graphId;
+    if (bitmapSize(min, max) <= newIds.length) {
+      toBitmap(newIds, min, max);
+    } else {
+      // identifiers are too sparse for a bitmap
+      Arrays.sort(newIds);
+      bitmap = false;
+      graphData = newIds;
+      graphCount = newIds.length;
+    }
+  }
+
+  private void toBitmap(long[] ids, long min, long max) {
+    long base = Math.floorDiv(min, 64L) * 64L;
+    long[] words = new long[(int) bitmapSize(min, max)];
+    for (long id : ids) {
+      long offset = id - base;
+      words[(int) (offset >>> 6)] |= 1L << offset;
+    }
+    graphId = base;
+    graphData = words;
+    graphCount = ids.length;
+    bitmap = true;
+  }
+
+  /**
+   * Returns the number of words of a bitmap covering the given identifiers.
+   *
+   * @param min smallest identifier
+   * @param max largest identifier
+   * @return number of 64 bit words
+   */
+  private static long bitmapSize(long min, long max) {
+    return Math.floorDiv(max, 64L) - Math.floorDiv(min, 64L) + 1;
+  }
+
+  /**
+   * Set view of the graph identifiers.
+   */
+  private class GraphSet extends AbstractSet<Long> {
+    @Override
+    public int size() {
+      return graphCount;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return o instanceof Long && isInGraph((Long) o);
+    }
+
+    @Override
+    public boolean add(Long graphId) {
+      int count = graphCount;
+      addToGraph(graphId);
+      return graphCount != count;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      return o instanceof Long && removeFromGraph((Long) o);
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+      long[] ids = getGraphIds();
+      return new Iterator<Long>() {
+        private int next = 0;
+        private boolean removable = false;
+
+        @Override
+        public boolean hasNext() {
+          return next < ids.length;
+        }
+
+        @Override
+        public Long next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          removable = true;
+          return ids[next++];
+        }
+
+        @Override
+        public void remove() {
+          if (!removable) {
+            throw new IllegalStateException();
+          }
+          removeFromGraph(ids[next - 1]);
+          removable = false;
+        }
+      };
+    }
   }
 }
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores property values outside of the Java heap.
+ *
+ * The values of an element are serialized into a record in direct byte buffers, which are
+ * allocated in chunks and never moved. Each value is written as a type tag followed by its
+ * payload, variable length values are prefixed by their length in bytes. An element only holds
+ * the address of its record and decodes values on access (see
+ * {@link Element#setPropertyStore(OffHeapPropertyStore)}).
+ *
+ * Records are immutable. Changing a property writes a new record, the space of the previous
+ * record is not reclaimed until the store is garbage collected. Writes are synchronized, reads
+ * do not lock.
+ */
+public final class OffHeapPropertyStore {
+  /**
+   * Size of a chunk by default in bytes.
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+  private static final byte NULL = 0;
+  private static final byte FALSE = 1;
+  private static final byte TRUE = 2;
+  private static final byte INTEGER = 3;
+  private static final byte LONG = 4;
+  private static final byte FLOAT = 5;
+  private static final byte DOUBLE = 6;
+  private static final byte STRING = 7;
+  private static final byte LIST = 8;
+
+  /**
+   * Size of a chunk in bytes.
+   */
+  private final int chunkSize;
+  /**
+   * Allocated chunks, records are addressed by chunk index and offset.
+   */
+  private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+  /**
+   * Chunk which receives new records or {@code null} if no chunk has been allocated.
+   */
+  private ByteBuffer current;
+  /**
+   * Serializes a record before it is copied into a chunk.
+   */
+  private ByteBuffer scratch = ByteBuffer.allocate(256);
+  /**
+   * Number of allocated bytes.
+   */
+  private long allocatedBytes;
+
+  /**
+   * Creates a new store using chunks of {@link #DEFAULT_CHUNK_SIZE} bytes.
+   */
+  public OffHeapPropertyStore() {
+    this(DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Creates a new store. Records which are larger than a chunk get a chunk of their own.
+   *
+   * @param chunkSize size of a chunk in bytes
+   */
+  public OffHeapPropertyStore(int chunkSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("Chunk size must be positive.");
+    }
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Checks if a property value can be stored, i.e. if it is {@code null}, a string, boolean,
+   * integer, long, float, double or a list of such values.
+   *
+   * @param value property value
+   * @return true, iff the value can be stored
+   */
+  public static boolean isSupported(Object value) {
+    if (value == null || value instanceof String || value instanceof Boolean ||
+      value instanceof Integer || value instanceof Long ||
+      value instanceof Float || value instanceof Double) {
+      return true;
+    }
+    if (value instanceof List) {
+      for (Object element : (List<?>) value) {
+        if (!isSupported(element)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of bytes allocated outside of the heap.
+   *
+   * @return allocated bytes
+   */
+  public synchronized long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  /**
+   * Writes a record of property values.
+   *
+   * @param values supported property values, see {@link #isSupported(Object)}
+   * @return address of the record
+   */
+  synchronized long write(Object[] values) {
+    scratch.clear();
+    for (Object value : values) {
+      writeValue(value);
+    }
+    int length = scratch.position();
+    scratch.flip();
+
+    if (current == null || current.remaining() < length) {
+      current = ByteBuffer.allocateDirect(Math.max(chunkSize, length));
+      allocatedBytes += current.capacity();
+      ByteBuffer[] newChunks = Arrays.copyOf(chunks, chunks.length + 1);
+      newChunks[chunks.length] = current;
+      chunks = newChunks;
+    }
+    long address = ((long) (chunks.length - 1) << 32) | current.position();
+    current.put(scratch);
+    return address;
+  }
+
+  /**
+   * Decodes a single value of a record.
+   *
+   * @param address record address
+   * @param slot index of the value in the record
+   * @return property value
+   */
+  Object read(long address, int slot) {
+    ByteBuffer chunk = chunks[(int) (address >>> 32)];
+    int offset = (int) address;
+    for (int i = 0; i < slot; i++) {
+      offset = skip(chunk, offset);
+    }
+    return readValue(chunk, offset);
+  }
+
+  /**
+   * Decodes all values of a record.
+   *
+   * @param address record address
+   * @param count number of values in the record
+   * @return property values
+   */
+  Object[] readAll(long address, int count) {
+    ByteBuffer chunk = chunks[(int) (address >>> 32)];
+    int offset = (int) address;
+    Object[] values = new Object[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = readValue(chunk, offset);
+      offset = skip(chunk, offset);
+    }
+    return values;
+  }
+
+  private void writeValue(Object value) {
+    if (value == null) {
+      ensureCapacity(1).put(NULL);
+    } else if (value instanceof Boolean) {
+      ensureCapacity(1).put((Boolean) value ? TRUE : FALSE);
+    } else if (value instanceof Integer) {
+      ensureCapacity(5).put(INTEGER).putInt((Integer) value);
+    } else if (value instanceof Long) {
+      ensureCapacity(9).put(LONG).putLong((Long) value);
+    } else if (value instanceof Float) {
+      ensureCapacity(5).put(FLOAT).putFloat((Float) value);
+    } else if (value instanceof Double) {
+      ensureCapacity(9).put(DOUBLE).putDouble((Double) value);
+    } else if (value instanceof String) {
+      byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+      ensureCapacity(5 + bytes.length).put(STRING).putInt(bytes.length).put(bytes);
+    } else if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      ensureCapacity(9).put(LIST);
+      int lengthPosition = scratch.position();
+      scratch.putInt(0).putInt(list.size());
+      for (Object element : list) {
+        writeValue(element);
+      }
+      // the length excludes the tag and the length itself
+      scratch.putInt(lengthPosition, scratch.position() - lengthPosition - 4);
+    } else {
+      throw new IllegalArgumentException("Unsupported property value: " + value.getClass());
+    }
+  }
+
+  /**
+   * Grows the scratch buffer if it cannot hold the given number of additional bytes.
+   *
+   * @param bytes number of bytes to be written
+   * @return scratch buffer
+   */
+  private ByteBuffer ensureCapacity(int bytes) {
+    if (scratch.remaining() < bytes) {
+      ByteBuffer larger = ByteBuffer.allocate(Math.max(scratch.capacity() * 2,
+        scratch.position() + bytes));
+      scratch.flip();
+      larger.put(scratch);
+      scratch = larger;
+    }
+    return scratch;
+  }
+
+  /**
+   * Returns the offset of the value following the value at the given offset.
+   *
+   * @param chunk chunk
+   * @param offset value offset
+   * @return offset of the next value
+   */
+  private static int skip(ByteBuffer chunk, int offset) {
+    switch (chunk.get(offset)) {
+      case INTEGER:
+      case FLOAT:
+        return offset + 5;
+      case LONG:
+      case DOUBLE:
+        return offset + 9;
+      case STRING:
+      case LIST:
+        return offset + 5 + chunk.getInt(offset + 1);
+      default:
+        return offset + 1;
+    }
+  }
+
+  private static Object readValue(ByteBuffer chunk, int offset) {
+    switch (chunk.get(offset)) {
+      case NULL:
+        return null;
+      case FALSE:
+        return Boolean.FALSE;
+      case TRUE:
+        return Boolean.TRUE;
+      case INTEGER:
+        return chunk.getInt(offset + 1);
+      case LONG:
+        return chunk.getLong(offset + 1);
+      case FLOAT:
+        return chunk.getFloat(offset + 1);
+      case DOUBLE:
+        return chunk.getDouble(offset + 1);
+      case STRING:
+        byte[] bytes = new byte[chunk.getInt(offset + 1)];
+        for (int i = 0; i < bytes.length; i++) {
+          bytes[i] = chunk.get(offset + 5 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+      case LIST:
+        int size = chunk.getInt(offset + 5);
+        List<Object> list = new ArrayList<>(size);
+        int next = offset + 9;
+        for (int i = 0; i < size; i++) {
+          list.add(readValue(chunk, next));
+          next = skip(chunk, next);
+        }
+        return list;
+      default:
+        throw new IllegalStateException("Invalid property record.");
+    }
+  }
+}
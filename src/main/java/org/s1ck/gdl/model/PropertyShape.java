@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ordered set of property keys shared by all elements with the same keys ("hidden class").
+ *
+ * Elements only store a reference to their shape and an array of values, the shape maps each key
+ * to its slot in that array. Shapes are interned: adding a key to a shape always returns the same
+ * successor shape, so elements whose properties are added in the same order share one instance.
+ *
+ * Each {@link SymbolDictionary} has its own tree of shapes, which is released together with the
+ * dictionary. A tree holds at most {@link #MAX_SHAPES} shapes. Once it is full, new key sets get
+ * shapes which are not interned and only used by the element which created them.
+ */
+final class PropertyShape {
+  /**
+   * Maximum number of interned shapes per tree.
+   */
+  static final int MAX_SHAPES = 1 << 16;
+
+  /**
+   * Number of keys up to which slots are found by a linear search.
+   */
+  private static final int MAX_LINEAR_SEARCH = 8;
+
+  /**
+   * Transition key of the {@code null} property key.
+   */
+  private static final Object NULL_KEY = new Object();
+
+  /**
+   * Shape without properties, which is the root of the tree.
+   */
+  private final PropertyShape root;
+
+  /**
+   * Number of interned shapes in the tree.
+   */
+  private final AtomicInteger shapeCount;
+
+  /**
+   * Keys by slot.
+   */
+  private final String[] keys;
+
+  /**
+   * Slots by key or {@code null} if slots are found by a linear search.
+   */
+  private final Map<String, Integer> slots;
+
+  /**
+   * Successor shapes by added key.
+   */
+  private final ConcurrentMap<Object, PropertyShape> transitions = new ConcurrentHashMap<>();
+
+  /**
+   * Creates the root of a new tree.
+   */
+  PropertyShape() {
+    this.root = this;
+    this.shapeCount = new AtomicInteger(1);
+    this.keys = new String[0];
+    this.slots = null;
+  }
+
+  private PropertyShape(PropertyShape parent, String key) {
+    this.root = parent.root;
+    this.shapeCount = parent.shapeCount;
+    this.keys = new String[parent.keys.length + 1];
+    System.arraycopy(parent.keys, 0, keys, 0, parent.keys.length);
+    keys[parent.keys.length] = key;
+    if (keys.length > MAX_LINEAR_SEARCH) {
+      slots = new HashMap<>(keys.length * 2);
+      for (int i = 0; i < keys.length; i++) {
+        slots.put(keys[i], i);
+      }
+    } else {
+      slots = null;
+    }
+  }
+
+  /**
+   * Returns the number of keys.
+   *
+   * @return number of keys
+   */
+  int size() {
+    return keys.length;
+  }
+
+  /**
+   * Returns the key stored at the given slot.
+   *
+   * @param slot slot
+   * @return property key
+   */
+  String getKey(int slot) {
+    return keys[slot];
+  }
+
+  /**
+   * Returns the slot of the given key.
+   *
+   * @param key property key, may be {@code null}
+   * @return slot or -1 if the shape does not contain the key
+   */
+  int indexOf(Object key) {
+    if (slots != null) {
+      Integer slot = slots.get(key);
+      return slot != null ? slot : -1;
+    }
+    for (int i = 0; i < keys.length; i++) {
+      if (Objects.equals(keys[i], key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the shape which contains all keys of this shape and the given key in the last slot.
+   *
+   * @param key property key which is not contained in this shape, may be {@code null}
+   * @return successor shape
+   */
+  PropertyShape with(String key) {
+    Object transitionKey = key != null ? key : NULL_KEY;
+    PropertyShape shape = transitions.get(transitionKey);
+    if (shape == null) {
+      shape = new PropertyShape(this, key);
+      // once the tree is full, the new shape is not interned
+      if (shapeCount.get() < MAX_SHAPES) {
+        PropertyShape existing = transitions.putIfAbsent(transitionKey, shape);
+        if (existing != null) {
+          shape = existing;
+        } else {
+          shapeCount.incrementAndGet();
+        }
+      }
+    }
+    return shape;
+  }
+
+  /**
+   * Returns the shape which contains all keys of this shape except the one at the given slot.
+   * The order of the remaining keys does not change.
+   *
+   * @param slot slot to remove
+   * @return shape without the slot
+   */
+  PropertyShape without(int slot) {
+    PropertyShape shape = root;
+    for (int i = 0; i < keys.length; i++) {
+      if (i != slot) {
+        shape = shape.with(keys[i]);
+      }
+    }
+    return shape;
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary which encodes labels and property keys as dense integer codes.
+ *
+ * Each distinct symbol is stored once and assigned the next free code, starting at zero. Elements
+ * store the codes of their labels, so comparing labels is an integer comparison if the code of
+ * the label is known. Encoding is synchronized, decoding does not lock.
+ */
+public class SymbolDictionary {
+  /**
+   * Code of the {@code null} symbol.
+   */
+  public static final int NULL_CODE = -1;
+
+  /**
+   * Dictionary used by elements which are not created by a {@link org.s1ck.gdl.GDLHandler}.
+   * Symbols are never removed, so it grows with the number of distinct labels and property keys
+   * of these elements.
+   */
+  static final SymbolDictionary DEFAULT = new SymbolDictionary();
+
+  /**
+   * Codes by symbol.
+   */
+  private final Map<String, Integer> codes = new HashMap<>();
+
+  /**
+   * Symbols by code, entries beyond {@link #size} are unused.
+   */
+  private volatile String[] symbols = new String[16];
+
+  /**
+   * Number of symbols.
+   */
+  private int size;
+
+  /**
+   * Shape without properties, which is the root of the shapes of all elements using this
+   * dictionary.
+   */
+  private final PropertyShape emptyShape = new PropertyShape();
+
+  /**
+   * Returns the code of the given symbol and adds the symbol if necessary.
+   *
+   * @param symbol label or property key
+   * @return code of the symbol or {@link #NULL_CODE} for {@code null}
+   */
+  public synchronized int encode(String symbol) {
+    if (symbol == null) {
+      return NULL_CODE;
+    }
+    Integer code = codes.get(symbol);
+    if (code == null) {
+      String[] array = symbols;
+      if (size == array.length) {
+        array = Arrays.copyOf(array, size * 2);
+      }
+      array[size] = symbol;
+      code = size++;
+      codes.put(symbol, code);
+      // publishes the new entry to decoding threads
+      symbols = array;
+    }
+    return code;
+  }
+
+  /**
+   * Returns the code of the given symbol without adding it.
+   *
+   * @param symbol label or property key
+   * @return code of the symbol or {@link #NULL_CODE} if the symbol is {@code null} or unknown
+   */
+  public synchronized int lookup(String symbol) {
+    Integer code = symbol != null ? codes.get(symbol) : null;
+    return code != null ? code : NULL_CODE;
+  }
+
+  /**
+   * Returns the symbol for the given code.
+   *
+   * @param code code returned by {@link #encode(String)}
+   * @return symbol or {@code null} for {@link #NULL_CODE}
+   */
+  public String decode(int code) {
+    return code == NULL_CODE ? null : symbols[code];
+  }
+
+  /**
+   * Returns the canonical instance of the given symbol and adds the symbol if necessary.
+   *
+   * @param symbol label or property key
+   * @return equal symbol stored in this dictionary
+   */
+  public String intern(String symbol) {
+    return decode(encode(symbol));
+  }
+
+  /**
+   * Returns the shape without properties of the elements using this dictionary.
+   *
+   * @return root shape
+   */
+  PropertyShape getEmptyShape() {
+    return emptyShape;
+  }
+
+  /**
+   * Returns the number of symbols.
+   *
+   * @return number of symbols
+   */
+  public synchronized int size() {
+    return size;
+  }
+}
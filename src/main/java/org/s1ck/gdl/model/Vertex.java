@@ -18,6 +18,13 @@ package org.s1ck.gdl.model;
 
 public class Vertex extends GraphElement {
 
+  public Vertex() {
+  }
+
+  public Vertex(SymbolDictionary symbols) {
+    super(symbols);
+  }
+
   @Override
   public String toString() {
     return "Vertex{" +
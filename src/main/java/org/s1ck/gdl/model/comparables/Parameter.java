@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.s1ck.gdl.model.comparables;
+
+/**
+ * Represents a parameter placeholder like $name, which is replaced by a {@link Literal} when a
+ * prepared script is bound to parameter values.
+ *
+ * Property values which refer to a parameter are represented by an instance of this class until
+ * the parameter is bound.
+ */
+public class Parameter implements ComparableExpression {
+
+  /**
+   * Parameter name without the leading '$'
+   */
+  private String name;
+
+  /**
+   * Creates a new parameter
+   *
+   * @param name parameter name without the leading '$'
+   */
+  public Parameter(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Returns the parameter name without the leading '$'
+   *
+   * @return parameter name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns null since this does not reference a variable
+   * @return null
+   */
+  @Override
+  public String getVariable() {
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return "$" + name;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    Parameter parameter = (Parameter) o;
+
+    return name != null ? name.equals(parameter.name) : parameter.name == null;
+
+  }
+
+  @Override
+  public int hashCode() {
+    return name != null ? name.hashCode() : 0;
+  }
+}
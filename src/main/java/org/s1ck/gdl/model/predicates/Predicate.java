@@ -19,6 +19,7 @@ package org.s1ck.gdl.model.predicates;
 import org.s1ck.gdl.model.GraphElement;
 import org.s1ck.gdl.model.predicates.expressions.Comparison;
 import org.s1ck.gdl.model.comparables.Literal;
+import org.s1ck.gdl.model.comparables.Parameter;
 import org.s1ck.gdl.model.comparables.PropertySelector;
 import org.s1ck.gdl.utils.Comparator;
 
@@ -60,7 +61,8 @@ public interface Predicate extends Serializable {
         predicate = new Comparison(
                 new PropertySelector(element.getVariable(), entry.getKey()),
                 Comparator.EQ,
-                new Literal(entry.getValue())
+                entry.getValue() instanceof Parameter ?
+                  (Parameter) entry.getValue() : new Literal(entry.getValue())
         );
 
         predicates.add(predicate);
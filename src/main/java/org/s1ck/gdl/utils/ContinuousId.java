@@ -1,15 +1,43 @@
 package org.s1ck.gdl.utils;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
 /**
- * Generates identifiers in a continuous fashion.
+ * Generates identifiers in a continuous fashion. Identifiers are unique even if they are
+ * requested or reserved concurrently.
  */
-public class ContinuousId implements Supplier<Long> {
-    private long nextId = 0L;
+public class ContinuousId implements LongSupplier, Supplier<Long>, IdAllocator {
+    private final AtomicLong nextId = new AtomicLong();
 
+    @Override
+    public long getAsLong() {
+        return nextId.getAndIncrement();
+    }
+
+    @Override
+    public long reserve(int count) {
+        return nextId.getAndAdd(count);
+    }
+
+    /**
+     * Makes sure that identifiers which are returned or reserved from now on are greater than
+     * the given identifier.
+     *
+     * @param id identifier which is already in use
+     */
+    public void skipPast(long id) {
+        nextId.accumulateAndGet(id + 1, Math::max);
+    }
+
+    /**
+     * Returns the next identifier boxed, use {@link #getAsLong()} to avoid boxing.
+     *
+     * @return next identifier
+     */
     @Override
     public Long get() {
-        return nextId++;
+        return getAsLong();
     }
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2017 The GDL Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.s1ck.gdl.utils;
+
+/**
+ * Reserves blocks of contiguous identifiers. Implementations must be thread-safe, since an
+ * allocator may be shared by multiple loaders which reserve blocks concurrently.
+ */
+public interface IdAllocator {
+  /**
+   * Reserves the given number of contiguous identifiers.
+   *
+   * @param count number of identifiers (positive)
+   * @return first identifier of the reserved block, i.e. the block contains the identifiers
+   *         {@code first} to {@code first + count - 1}
+   */
+  long reserve(int count);
+}
@@ -1,20 +1,56 @@
 package org.s1ck.gdl;
 
+import org.antlr.v4.runtime.ANTLRErrorStrategy;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.s1ck.gdl.exceptions.BailSyntaxErrorStrategy;
+import org.s1ck.gdl.exceptions.CyclicIncludeException;
+import org.s1ck.gdl.exceptions.UnboundParameterException;
 import org.s1ck.gdl.model.Edge;
 import org.s1ck.gdl.model.Graph;
+import org.s1ck.gdl.model.SymbolDictionary;
 import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.utils.ContinuousId;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class GDLHandlerTest {
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   @Test
   public void initFromStringTest() {
     GDLHandler handler = new GDLHandler.Builder().buildFromString("[()-->()]");
@@ -88,6 +124,29 @@ public class GDLHandlerTest {
     assertEquals("wrong number of vertices", 2, handler.getVertices().size());
   }
 
+  @Test
+  public void appendMultipleTest() {
+    GDLHandler handler = new GDLHandler.Builder().buildFromString("g[(v)]");
+    handler.append("g[(v)-[e1]->(u)]");
+    handler.append("h[(u)-[e2]->(w)]");
+    handler.append("(w)-->(v)");
+
+    assertEquals("wrong number of graphs", 2, handler.getGraphs().size());
+    assertEquals("wrong number of vertices", 3, handler.getVertices().size());
+    assertEquals("wrong number of edges", 3, handler.getEdges().size());
+    assertEquals("wrong source vertex identifier",
+      (Long) handler.getVertexCache().get("u").getId(),
+      handler.getEdgeCache().get("e2").getSourceVertexId());
+  }
+
+  @Test(expected = ParseCancellationException.class)
+  public void appendWithErrorStrategyTest() {
+    GDLHandler handler = new GDLHandler.Builder()
+      .setErrorStrategy(new BailSyntaxErrorStrategy())
+      .buildFromString("(v)");
+    handler.append("(v)-->(");
+  }
+
   @Test
   public void appendExistingVertexTest() {
     GDLHandler handler = new GDLHandler.Builder().buildFromString("g[(v)]");
@@ -148,4 +207,858 @@ public class GDLHandlerTest {
     assertEquals("wrong id for e1", 42L, handler.getEdgeCache().get("e1").getId());
     assertEquals("wrong id for e1", 84L, handler.getEdgeCache().get("e2").getId());
   }
+
+  @Test
+  public void boxedIdSupplierTest() {
+    Supplier<Long> nextVertexId = new AtomicLong(42)::getAndIncrement;
+
+    GDLHandler handler = new GDLHandler.Builder()
+            .setNextVertexId(nextVertexId)
+            .buildFromString("g[(v1)-[e1]->(v2)]");
+
+    Graph g = handler.getGraphCache().get("g");
+    Vertex v1 = handler.getVertexCache().get("v1");
+    Edge e1 = handler.getEdgeCache().get("e1");
+    assertEquals("wrong id for v1", 42L, v1.getId());
+    assertEquals("wrong id for v2", 43L, handler.getVertexCache().get("v2").getId());
+    assertEquals("wrong source id for e1", 42L, e1.getSourceId());
+    assertEquals("wrong target id for e1", 43L, e1.getTargetId());
+    assertEquals("wrong boxed source id for e1", (Long) 42L, e1.getSourceVertexId());
+    assertEquals("wrong graph count for v1", 1, v1.getGraphCount());
+    assertEquals("wrong graph ids for v1", g.getId(), v1.getGraphIds()[0]);
+  }
+
+  @Test
+  public void unboxedIdSupplierTest() {
+    Supplier<Long> nextVertexId = new ContinuousId();
+    AtomicLong nextEdgeId = new AtomicLong(42);
+
+    GDLHandler handler = new GDLHandler.Builder()
+            .setNextVertexId(nextVertexId)
+            .setNextEdgeIdAsLong(() -> nextEdgeId.getAndAdd(2))
+            .buildFromString("(v1)-[e1]->(v2)-[e2]->(v3)");
+
+    assertEquals("wrong id for v1", 0L, handler.getVertexCache().get("v1").getId());
+    assertEquals("wrong id for v3", 2L, handler.getVertexCache().get("v3").getId());
+    assertEquals("wrong id for e1", 42L, handler.getEdgeCache().get("e1").getId());
+    assertEquals("wrong id for e2", 44L, handler.getEdgeCache().get("e2").getId());
+    assertEquals("wrong next id", 3L, (long) nextVertexId.get());
+  }
+
+  @Test
+  public void idAllocatorTest() {
+    ContinuousId ids = new ContinuousId();
+    AtomicLong reservations = new AtomicLong();
+    GDLHandler.Builder builder = new GDLHandler.Builder()
+      .setVertexIdAllocator(count -> {
+        reservations.incrementAndGet();
+        return ids.reserve(count);
+      })
+      .setIdBlockSize(4);
+
+    GDLHandler first = builder.buildFromString("(v1)-->(v2)-->(v3)-->(v4)-->(v5)");
+    assertEquals("wrong number of reservations", 2, reservations.get());
+    assertEquals("wrong id for v1", 0L, first.getVertexCache().get("v1").getId());
+    assertEquals("wrong id for v5", 4L, first.getVertexCache().get("v5").getId());
+
+    // each loader reserves its own blocks
+    GDLHandler second = builder.buildFromString("(v1)");
+    assertEquals("wrong number of reservations", 3, reservations.get());
+    assertEquals("wrong id for v1", 8L, second.getVertexCache().get("v1").getId());
+
+    // appended elements use the remaining ids of the block
+    first.append("(v6),(v7),(v8),(v9)");
+    assertEquals("wrong number of reservations", 4, reservations.get());
+    assertEquals("wrong id for v8", 7L, first.getVertexCache().get("v8").getId());
+    assertEquals("wrong id for v9", 12L, first.getVertexCache().get("v9").getId());
+  }
+
+  @Test
+  public void streamFromStringTest() {
+    List<Graph> graphs = new ArrayList<>();
+    List<Vertex> vertices = new ArrayList<>();
+    List<Edge> edges = new ArrayList<>();
+
+    GDLHandler handler = new GDLHandler.Builder()
+      .streamFromString("g[(alice)-->()], (alice)-[e]->(bob)", new CollectingSink(graphs, vertices, edges));
+
+    assertEquals("wrong number of graphs", 1, graphs.size());
+    assertEquals("wrong number of vertices", 3, vertices.size());
+    assertEquals("wrong number of edges", 2, edges.size());
+
+    assertTrue("streamed elements must not be held", handler.getVertices().isEmpty());
+    assertTrue("streamed elements must not be held", handler.getEdges().isEmpty());
+
+    Vertex alice = handler.getVertexCache().get("alice");
+    Vertex bob = handler.getVertexCache().get("bob");
+    Edge e = handler.getEdgeCache().get("e");
+    assertTrue("vertex was not emitted", vertices.contains(alice));
+    assertEquals("wrong source vertex identifier", (Long) alice.getId(), e.getSourceVertexId());
+    assertEquals("wrong target vertex identifier", (Long) bob.getId(), e.getTargetVertexId());
+    assertTrue("Vertex is in wrong graph",
+      alice.getGraphs().contains(handler.getGraphCache().get("g").getId()));
+  }
+
+  @Test
+  public void streamFromFileTest() throws IOException {
+    String fileName = GDLHandler.class.getResource("/social_network.gdl").getFile();
+    GDLHandler expected = new GDLHandler.Builder().buildFromFile(fileName);
+
+    List<Graph> graphs = new ArrayList<>();
+    List<Vertex> vertices = new ArrayList<>();
+    List<Edge> edges = new ArrayList<>();
+    new GDLHandler.Builder().streamFromFile(fileName, new CollectingSink(graphs, vertices, edges));
+
+    assertEquals("wrong number of graphs", expected.getGraphs().size(), graphs.size());
+    assertEquals("wrong number of vertices", expected.getVertices().size(), vertices.size());
+    assertEquals("wrong number of edges", expected.getEdges().size(), edges.size());
+  }
+
+  @Test
+  public void initFromFileParallelTest() throws IOException {
+    String fileName = GDLHandler.class.getResource("/social_network.gdl").getFile();
+    GDLHandler expected = new GDLHandler.Builder().buildFromFile(fileName);
+    GDLHandler handler = new GDLHandler.Builder().buildFromFileParallel(fileName, 4);
+
+    assertEquals("wrong graphs", expected.getGraphs().toString(), handler.getGraphs().toString());
+    assertEquals("wrong vertices", expected.getVertices().toString(), handler.getVertices().toString());
+    assertEquals("wrong edges", expected.getEdges().toString(), handler.getEdges().toString());
+    assertEquals("wrong graph cache",
+      expected.getGraphCache(true, true).toString(), handler.getGraphCache(true, true).toString());
+    assertEquals("wrong vertex cache",
+      expected.getVertexCache(true, true).toString(), handler.getVertexCache(true, true).toString());
+    assertEquals("wrong edge cache",
+      expected.getEdgeCache(true, true).toString(), handler.getEdgeCache(true, true).toString());
+  }
+
+  @Test
+  public void snapshotTest() throws IOException {
+    String fileName = GDLHandler.class.getResource("/social_network.gdl").getFile();
+    GDLHandler expected = new GDLHandler.Builder().buildFromFile(fileName);
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    expected.writeSnapshot(outputStream);
+    GDLHandler handler = new GDLHandler.Builder()
+      .buildFromSnapshot(new ByteArrayInputStream(outputStream.toByteArray()));
+
+    assertEquals("wrong graphs", expected.getGraphs().toString(), handler.getGraphs().toString());
+    assertEquals("wrong vertices", expected.getVertices().toString(), handler.getVertices().toString());
+    assertEquals("wrong edges", expected.getEdges().toString(), handler.getEdges().toString());
+    assertEquals("wrong graph cache",
+      expected.getGraphCache(true, true).toString(), handler.getGraphCache(true, true).toString());
+    assertEquals("wrong vertex cache",
+      expected.getVertexCache(true, true).toString(), handler.getVertexCache(true, true).toString());
+    assertEquals("wrong edge cache",
+      expected.getEdgeCache(true, true).toString(), handler.getEdgeCache(true, true).toString());
+    assertEquals("wrong user-defined graphs",
+      expected.getGraphCache().keySet(), handler.getGraphCache().keySet());
+  }
+
+  @Test
+  public void snapshotAppendTest() throws IOException {
+    GDLHandler expected = new GDLHandler.Builder().buildFromString("g[(alice)-[e]->(bob)]");
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    expected.writeSnapshot(outputStream);
+    GDLHandler handler = new GDLHandler.Builder()
+      .buildFromSnapshot(new ByteArrayInputStream(outputStream.toByteArray()));
+
+    handler.append("h[(alice)-[f]->(eve)-->()]");
+    assertEquals("wrong number of graphs", 2, handler.getGraphs().size());
+    assertEquals("wrong number of vertices", 4, handler.getVertices().size());
+    assertEquals("wrong number of edges", 3, handler.getEdges().size());
+    assertSame("wrong vertex", handler.getVertex("eve"),
+      handler.getVertexById(handler.getVertex("eve").getId()));
+    assertSame("wrong vertex", handler.getVertex("bob"),
+      handler.getVertexById(handler.getVertex("bob").getId()));
+    assertSame("wrong edge", handler.getEdge("e"),
+      handler.getEdgeById(handler.getEdge("e").getId()));
+  }
+
+  @Test
+  public void snapshotQueryTest() throws IOException {
+    GDLHandler expected = new GDLHandler.Builder()
+      .buildFromString("MATCH (a:Person {name : \"Alice\"})-[e*1..3]->(b) WHERE a.age > 42L OR NOT b.active = true");
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    expected.writeSnapshot(outputStream);
+    GDLHandler handler = new GDLHandler.Builder()
+      .buildFromSnapshot(new ByteArrayInputStream(outputStream.toByteArray()));
+
+    assertEquals("wrong edges", expected.getEdges().toString(), handler.getEdges().toString());
+    assertEquals("wrong predicates",
+      expected.getPredicates().get().toString(), handler.getPredicates().get().toString());
+  }
+
+  @Test
+  public void snapshotStreamTest() throws IOException {
+    GDLHandler expected = new GDLHandler.Builder().buildFromString("(alice)-->()<-[e]-()");
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    expected.writeSnapshot(outputStream);
+    expected.writeSnapshot(outputStream);
+    ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
+
+    // the stream is read up to the end of the first snapshot only
+    new GDLHandler.Builder().buildFromSnapshot(inputStream);
+    GDLHandler handler = new GDLHandler.Builder().buildFromSnapshot(inputStream);
+    assertEquals("unexpected bytes after snapshot", -1, inputStream.read());
+
+    assertEquals("wrong vertex cache",
+      expected.getVertexCache(true, true).toString(), handler.getVertexCache(true, true).toString());
+    for (Vertex v : handler.getVertices()) {
+      assertEquals("wrong anonymous variable", !v.getVariable().equals("alice"),
+        v.hasAnonymousVariable());
+    }
+    assertTrue("wrong anonymous variable", handler.getEdges().stream()
+      .filter(edge -> !edge.getVariable().equals("e"))
+      .allMatch(Edge::hasAnonymousVariable));
+  }
+
+  @Test(expected = IOException.class)
+  public void invalidSnapshotTest() throws IOException {
+    new GDLHandler.Builder().buildFromSnapshot(new ByteArrayInputStream("[()]".getBytes()));
+  }
+
+  @Test
+  public void parseCacheTest() throws IOException {
+    String fileName = GDLHandler.class.getResource("/social_network.gdl").getFile();
+    File cacheDirectory = new File(folder.getRoot(), "cache");
+    GDLHandler.Builder expectedBuilder = new GDLHandler.Builder();
+    GDLHandler.Builder builder = new GDLHandler.Builder()
+      .enableParseCache(cacheDirectory.getPath());
+
+    // first build stores the snapshot, second build loads it using new ids
+    for (int i = 0; i < 2; i++) {
+      GDLHandler expected = expectedBuilder.buildFromFile(fileName);
+      GDLHandler handler = builder.buildFromFile(fileName);
+
+      assertEquals("wrong number of cache entries", 1, cacheDirectory.list().length);
+      assertEquals("wrong graphs", expected.getGraphs().toString(), handler.getGraphs().toString());
+      assertEquals("wrong vertices", expected.getVertices().toString(), handler.getVertices().toString());
+      assertEquals("wrong edges", expected.getEdges().toString(), handler.getEdges().toString());
+      assertEquals("wrong vertex cache",
+        expected.getVertexCache(true, true).toString(), handler.getVertexCache(true, true).toString());
+    }
+
+    builder.setDefaultVertexLabel("Person").buildFromFile(fileName);
+    assertEquals("wrong number of cache entries", 2, cacheDirectory.list().length);
+  }
+
+  @Test
+  public void parseCacheSharedIdSupplierTest() {
+    File cacheDirectory = new File(folder.getRoot(), "cache");
+    AtomicLong nextId = new AtomicLong();
+    GDLHandler.Builder builder = new GDLHandler.Builder()
+      .setNextGraphId(nextId::getAndIncrement)
+      .setNextVertexId(nextId::getAndIncrement)
+      .setNextEdgeId(nextId::getAndIncrement)
+      .enableParseCache(cacheDirectory.getPath());
+
+    // first build stores the snapshot, second build loads it, both instantiate by element type
+    for (long offset = 0; offset <= 7; offset += 7) {
+      GDLHandler handler = builder.buildFromString("g[(a)-[e]->(b)],h[(b)-[f]->(c)]");
+
+      assertEquals("wrong number of cache entries", 1, cacheDirectory.list().length);
+      assertEquals("wrong id for g", offset, handler.getGraph("g").getId());
+      assertEquals("wrong id for h", offset + 1, handler.getGraph("h").getId());
+      assertEquals("wrong id for a", offset + 2, handler.getVertex("a").getId());
+      assertEquals("wrong id for b", offset + 3, handler.getVertex("b").getId());
+      assertEquals("wrong id for c", offset + 4, handler.getVertex("c").getId());
+      assertEquals("wrong id for e", offset + 5, handler.getEdge("e").getId());
+      assertEquals("wrong id for f", offset + 6, handler.getEdge("f").getId());
+      assertEquals("wrong source id for f", offset + 3, handler.getEdge("f").getSourceId());
+    }
+  }
+
+  @Test
+  public void parseCacheStreamTest() throws IOException {
+    File cacheDirectory = new File(folder.getRoot(), "cache");
+    GDLHandler handler = new GDLHandler.Builder()
+      .enableParseCache(cacheDirectory.getPath())
+      .buildFromStream(new ByteArrayInputStream("(alice)-[:knows]->(bob)".getBytes()));
+
+    // streams are parsed without reading them into memory for hashing
+    assertEquals("wrong number of vertices", 2, handler.getVertices().size());
+    assertFalse("unexpected cache entry", cacheDirectory.exists());
+  }
+
+  @Test
+  public void parseCacheEvictionTest() {
+    File cacheDirectory = new File(folder.getRoot(), "cache");
+    GDLHandler.Builder builder = new GDLHandler.Builder()
+      .enableParseCache(cacheDirectory.getPath())
+      .setParseCacheMaxSize(0L);
+    GDLHandler handler = builder.buildFromString("(alice)-[:knows]->(bob)");
+
+    assertEquals("wrong number of vertices", 2, handler.getVertices().size());
+    assertEquals("wrong number of cache entries", 0, cacheDirectory.list().length);
+  }
+
+  @Test
+  public void buildAsyncTest() throws Exception {
+    String fileName = GDLHandler.class.getResource("/social_network.gdl").getFile();
+    GDLHandler.Builder builder = new GDLHandler.Builder();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<CompletableFuture<GDLHandler>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(builder.buildFromStringAsync("(alice)-[:knows]->(bob)", executor));
+      }
+      futures.add(builder.buildFromFileAsync(fileName, executor));
+      futures.add(builder.buildFromStreamAsync(
+        GDLHandler.class.getResourceAsStream("/single_graph.gdl"), executor));
+
+      Set<Long> vertexIds = new HashSet<>();
+      int vertexCount = 0;
+      for (CompletableFuture<GDLHandler> future : futures) {
+        for (Vertex v : future.get().getVertices()) {
+          vertexIds.add(v.getId());
+          vertexCount++;
+        }
+      }
+      assertEquals("vertex ids are not unique", vertexCount, vertexIds.size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void buildAsyncErrorStrategyTest() throws Exception {
+    List<ANTLRErrorStrategy> strategies = Collections.synchronizedList(new ArrayList<>());
+    GDLHandler.Builder builder = new GDLHandler.Builder().setErrorStrategyFactory(() -> {
+      ANTLRErrorStrategy strategy = new DefaultErrorStrategy();
+      strategies.add(strategy);
+      return strategy;
+    });
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<CompletableFuture<GDLHandler>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(builder.buildFromStringAsync("(alice)-[:knows]->(bob) (eve:", executor));
+      }
+      for (CompletableFuture<GDLHandler> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    // each parse recovers from the syntax error using its own strategy
+    assertTrue("wrong number of strategies", strategies.size() >= 8);
+    assertEquals("strategy was shared", strategies.size(), new HashSet<>(strategies).size());
+  }
+
+  @Test(expected = IOException.class)
+  public void buildAsyncMissingFileTest() throws Throwable {
+    try {
+      new GDLHandler.Builder().buildFromFileAsync("missing.gdl", Runnable::run).get();
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    }
+  }
+
+  @Test
+  public void symbolDictionaryTest() {
+    GDLHandler handler = new GDLHandler.Builder()
+      .buildFromString("(alice:Person:User {name:\"Alice\"})-[e:knows]->(bob:Person {name:\"Bob\"})");
+    SymbolDictionary symbols = handler.getSymbolDictionary();
+    Vertex alice = handler.getVertexCache().get("alice");
+    Vertex bob = handler.getVertexCache().get("bob");
+    int person = symbols.encode("Person");
+
+    assertTrue("alice is no person", alice.hasLabel(person));
+    assertTrue("bob is no person", bob.hasLabel(person));
+    assertFalse("bob is a user", bob.hasLabel(symbols.encode("User")));
+    assertEquals("wrong label codes", person, bob.getLabelCodes()[0]);
+    assertEquals("wrong labels", Arrays.asList("Person", "User"), alice.getLabels());
+    assertEquals("wrong label", "knows", symbols.decode(handler.getEdgeCache().get("e").getLabelCodes()[0]));
+    assertEquals("wrong number of symbols", 4, symbols.size());
+  }
+
+  @Test
+  public void adjacencyTest() {
+    GDLHandler handler = new GDLHandler.Builder()
+      .buildFromString("(alice)-[e1:knows]->(bob),(alice)-[e2:knows]->(eve),(bob)-[e3:knows]->(alice)");
+    Vertex alice = handler.getVertexCache().get("alice");
+    Vertex bob = handler.getVertexCache().get("bob");
+    Map<String, Edge> edges = handler.getEdgeCache();
+
+    assertEquals("wrong outgoing edges", Arrays.asList(edges.get("e1"), edges.get("e2")),
+      handler.getOutgoingEdges(alice.getId()));
+    assertEquals("wrong incoming edges", Collections.singletonList(edges.get("e3")),
+      handler.getIncomingEdges(alice.getId()));
+    assertEquals("wrong outgoing edges", Collections.emptyList(), handler.getOutgoingEdges(-1L));
+
+    // appending data invalidates the adjacency
+    handler.append("(bob)-[e4:knows]->(eve)");
+    assertEquals("wrong outgoing edges",
+      Arrays.asList(handler.getEdgeCache().get("e3"), handler.getEdgeCache().get("e4")),
+      handler.getOutgoingEdges(bob.getId()));
+  }
+
+  @Test
+  public void freezeTest() {
+    GDLHandler handler = new GDLHandler.Builder()
+      .buildFromString("g[(alice:Person {age : 23})-[e:knows]->(bob:Person)]");
+    GDLDatabase database = handler.freeze();
+    handler.append("(eve:Person)");
+
+    GDLDatabase.GraphElementTable vertices = database.getVertices();
+    GDLDatabase.EdgeTable edges = database.getEdges();
+    assertEquals("wrong number of vertices", 2, vertices.size());
+    assertEquals("wrong number of edges", 1, edges.size());
+
+    int alice = vertices.indexOf(handler.getVertexCache().get("alice").getId());
+    int bob = vertices.indexOf(handler.getVertexCache().get("bob").getId());
+    assertEquals("wrong variable", "alice", vertices.getVariable(alice));
+    assertEquals("wrong label", "Person", vertices.getLabel(alice));
+    assertTrue("missing label", vertices.hasLabel(bob, database.getSymbolCode("Person")));
+    assertEquals("wrong property value", 23, vertices.getProperty(alice, "age"));
+    assertFalse("unexpected property", vertices.hasProperty(bob, "age"));
+    assertEquals("wrong source", alice, edges.getSourceIndex(0));
+    assertEquals("wrong target", bob, edges.getTargetIndex(0));
+    assertTrue("wrong graph", vertices.isInGraph(alice,
+      database.getGraphs().indexOf(handler.getGraphCache().get("g").getId())));
+    assertEquals("wrong code", GDLDatabase.MISSING_SYMBOL, database.getSymbolCode("Company"));
+  }
+
+  @Test
+  public void offHeapPropertiesTest() throws IOException {
+    String fileName = GDLHandler.class.getResource("/social_network.gdl").getFile();
+    GDLHandler expected = new GDLHandler.Builder().buildFromFile(fileName);
+    GDLHandler handler = new GDLHandler.Builder().enableOffHeapProperties().buildFromFile(fileName);
+
+    assertEquals("wrong vertices", expected.getVertices().toString(), handler.getVertices().toString());
+    assertEquals("wrong edges", expected.getEdges().toString(), handler.getEdges().toString());
+    Map<String, Vertex> expectedVertices = expected.getVertexCache(true, true);
+    for (Vertex vertex : handler.getVertices()) {
+      assertEquals("wrong properties",
+        expectedVertices.get(vertex.getVariable()).getProperties(), vertex.getProperties());
+    }
+  }
+
+  @Test
+  public void lazyPropertiesTest() throws IOException {
+    String script = "(a {s : \"Alice\", i : 23, l : 42L, f : 1.5f, d : 2.5d, b : true, " +
+      "n : NULL, list : [1, \"x\", false]})-[e {since : 2014}]->(b)";
+    GDLHandler expected = new GDLHandler.Builder().buildFromString(script);
+    GDLHandler handler = new GDLHandler.Builder().enableLazyProperties().buildFromString(script);
+
+    assertEquals("wrong vertex properties", expected.getVertexCache().get("a").getProperties(),
+      handler.getVertexCache().get("a").getProperties());
+    assertEquals("wrong edge properties", expected.getEdgeCache().get("e").getProperties(),
+      handler.getEdgeCache().get("e").getProperties());
+
+    String fileName = GDLHandler.class.getResource("/social_network.gdl").getFile();
+    expected = new GDLHandler.Builder().buildFromFile(fileName);
+    handler = new GDLHandler.Builder().enableLazyProperties().buildFromFile(fileName);
+    assertEquals("wrong vertices", expected.getVertices().toString(), handler.getVertices().toString());
+    assertEquals("wrong edges", expected.getEdges().toString(), handler.getEdges().toString());
+  }
+
+  @Test
+  public void elementIndexTest() {
+    GDLHandler handler = new GDLHandler.Builder()
+      .buildFromString("g[(alice:Person)-[e:knows]->(bob:Person)],(acme:Company)");
+    Graph g = handler.getGraphCache().get("g");
+    Vertex alice = handler.getVertexCache().get("alice");
+    Vertex bob = handler.getVertexCache().get("bob");
+    Edge e = handler.getEdgeCache().get("e");
+
+    assertSame("wrong vertex", bob, handler.getVertexById(e.getTargetId()));
+    assertSame("wrong edge", e, handler.getEdgeById(e.getId()));
+    assertSame("wrong graph", g, handler.getGraphById(g.getId()));
+    assertEquals("wrong vertices", Arrays.asList(alice, bob), handler.getVerticesByLabel("Person"));
+    assertEquals("wrong edges", Collections.singletonList(e), handler.getEdgesByLabel("knows"));
+    assertEquals("wrong vertices", Collections.emptyList(), handler.getVerticesByLabel("Tag"));
+    assertEquals("wrong vertices", Arrays.asList(alice, bob), handler.getVerticesOfGraph(g.getId()));
+    assertEquals("wrong edges", Collections.singletonList(e), handler.getEdgesOfGraph(g.getId()));
+
+    // appended elements are indexed
+    handler.append("h[(alice)-[f:knows]->(eve:Person)]");
+    Graph h = handler.getGraphCache().get("h");
+    Vertex eve = handler.getVertexCache().get("eve");
+    assertSame("wrong vertex", eve, handler.getVertexById(eve.getId()));
+    assertEquals("wrong number of vertices", 3, handler.getVerticesByLabel("Person").size());
+    assertEquals("wrong vertices", Arrays.asList(alice, eve), handler.getVerticesOfGraph(h.getId()));
+  }
+
+  @Test
+  public void propertyIndexTest() {
+    GDLHandler handler = new GDLHandler.Builder().buildFromString(
+      "(alice:Person {name : \"Alice\", age : 20}),(bob:Person {name : \"Bob\", age : 30L})," +
+        "(carol:Person {name : \"Carol\", age : 35.5}),(acme:Company {name : \"Alice\"})");
+    Map<String, Vertex> vertices = handler.getVertexCache();
+    PropertyIndex<Vertex> names =
+      handler.createPropertyIndex("Person", "name", PropertyIndex.Type.HASH);
+    PropertyIndex<Vertex> ages =
+      handler.createPropertyIndex("Person", "age", PropertyIndex.Type.SORTED);
+
+    assertEquals("wrong vertices", Collections.singletonList(vertices.get("alice")),
+      names.get("Alice"));
+    assertEquals("wrong vertices", Collections.singletonList(vertices.get("bob")), ages.get(30));
+    assertEquals("wrong vertices", Arrays.asList(vertices.get("bob"), vertices.get("carol")),
+      ages.getRange(20, false, null, false));
+    assertEquals("wrong vertices", Arrays.asList(vertices.get("alice"), vertices.get("bob")),
+      ages.getRange(20, true, 35, true));
+
+    // appended elements are indexed
+    handler.append("(dave:Person {name : \"Dave\", age : 40})");
+    assertEquals("wrong vertices", Collections.singletonList(handler.getVertexCache().get("dave")),
+      ages.getRange(36, true, null, false));
+    assertEquals("wrong number of vertices", 4, names.size());
+  }
+  @Test
+  public void propertyIndexFloatTest() {
+    // literals without suffix are loaded as floats, which are not exact for 0.1 and 0.2
+    GDLHandler handler = new GDLHandler.Builder().buildFromString(
+      "(a:Item {price : 0.1}),(b:Item {price : 0.2}),(c:Item {price : 0.3d})");
+    Map<String, Vertex> vertices = handler.getVertexCache();
+    PropertyIndex<Vertex> hashed =
+      handler.createPropertyIndex("Item", "price", PropertyIndex.Type.HASH);
+    PropertyIndex<Vertex> sorted =
+      handler.createPropertyIndex("Item", "price", PropertyIndex.Type.SORTED);
+
+    assertEquals("wrong vertices", Collections.singletonList(vertices.get("a")), hashed.get(0.1));
+    assertEquals("wrong vertices", Collections.singletonList(vertices.get("a")), sorted.get(0.1));
+    assertEquals("wrong vertices", Collections.singletonList(vertices.get("b")), sorted.get(0.2f));
+    assertEquals("wrong vertices", Arrays.asList(vertices.get("a"), vertices.get("b")),
+      sorted.getRange(0.1, true, 0.2, true));
+    assertEquals("wrong vertices", Arrays.asList(vertices.get("b"), vertices.get("c")),
+      sorted.getRange(0.1, false, 0.3, true));
+  }
+
+
+  @Test
+  public void cacheViewTest() {
+    GDLHandler handler = new GDLHandler.Builder().buildFromString("(alice)-->(bob)");
+    Map<String, Vertex> userVertices = handler.getVertexCache();
+    Map<String, Vertex> allVertices = handler.getVertexCache(true, true);
+    assertEquals("wrong number of cached vertices", 2, userVertices.size());
+    assertEquals("wrong number of cached edges", 1, handler.getEdgeCache(true, true).size());
+
+    // views reflect appended elements
+    handler.append("(bob)-->(eve)");
+    assertEquals("wrong number of cached vertices", 3, userVertices.size());
+    assertEquals("wrong number of cached vertices", 3, allVertices.size());
+    assertSame("wrong vertex", userVertices.get("eve"), handler.getVertex("eve"));
+    assertEquals("wrong number of cached edges", 2, handler.getEdgeCache(true, true).size());
+    for (Map.Entry<String, Edge> entry : handler.getEdgeCache(false, true).entrySet()) {
+      assertSame("wrong edge", entry.getValue(), handler.getEdge(entry.getKey()));
+    }
+  }
+
+  @Test
+  public void anonymousVariableTest() {
+    GDLHandler handler = new GDLHandler.Builder().buildFromString("(alice)-->()-->()<-[e]-(alice)");
+    Map<String, Vertex> autoVertices = handler.getVertexCache(false, true);
+    assertEquals("wrong number of cached vertices", 2, autoVertices.size());
+    assertEquals("wrong number of cached edges", 2, handler.getEdgeCache(false, true).size());
+    for (Vertex v : handler.getVertices()) {
+      if (!v.getVariable().equals("alice")) {
+        assertEquals("wrong variable", "__v" + v.getId(), v.getVariable());
+        assertSame("wrong vertex", v, autoVertices.get(v.getVariable()));
+      }
+    }
+    assertNull("unexpected vertex", autoVertices.get("__v"));
+    assertNull("unexpected vertex", autoVertices.get("alice"));
+    assertEquals("wrong variable", "e", handler.getEdge("e").getVariable());
+  }
+
+  @Test
+  public void buildFromCompressedInputTest() throws IOException {
+    String fileName = GDLHandler.class.getResource("/social_network.gdl").getFile();
+    byte[] content = Files.readAllBytes(Paths.get(fileName));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+      gzip.write(content);
+    }
+    File file = folder.newFile("social_network.gdl.gz");
+    Files.write(file.toPath(), bytes.toByteArray());
+
+    GDLHandler expected = new GDLHandler.Builder().buildFromFile(fileName);
+    List<GDLHandler> handlers = Arrays.asList(
+      new GDLHandler.Builder().buildFromFile(file.getPath()),
+      new GDLHandler.Builder().buildFromStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    for (GDLHandler handler : handlers) {
+      assertEquals("wrong graphs", expected.getGraphs().toString(), handler.getGraphs().toString());
+      assertEquals("wrong vertices", expected.getVertices().toString(), handler.getVertices().toString());
+      assertEquals("wrong edges", expected.getEdges().toString(), handler.getEdges().toString());
+    }
+  }
+
+  @Test
+  public void includeTest() throws IOException {
+    File people = folder.newFile("people.gdl");
+    Files.write(people.toPath(), "(alice:Person),(bob:Person)".getBytes(StandardCharsets.UTF_8));
+    File script = folder.newFile("script.gdl");
+    Files.write(script.toPath(),
+      "INCLUDE \"people.gdl\" (alice)-[:knows]->(bob)".getBytes(StandardCharsets.UTF_8));
+
+    GDLHandler expected = new GDLHandler.Builder()
+      .buildFromString("(alice:Person),(bob:Person) (alice)-[:knows]->(bob)");
+    GDLHandler handler = new GDLHandler.Builder()
+      .setIncludeExecutor(Runnable::run)
+      .buildFromFile(script.getPath());
+
+    assertEquals("wrong number of vertices", 2, handler.getVertices().size());
+    assertEquals("wrong vertices", expected.getVertices().toString(), handler.getVertices().toString());
+    assertEquals("wrong edges", expected.getEdges().toString(), handler.getEdges().toString());
+  }
+
+  @Test(expected = CyclicIncludeException.class)
+  public void cyclicIncludeTest() throws IOException {
+    File a = folder.newFile("a.gdl");
+    Files.write(a.toPath(), "INCLUDE \"b.gdl\" (alice)".getBytes(StandardCharsets.UTF_8));
+    File b = folder.newFile("b.gdl");
+    Files.write(b.toPath(), "INCLUDE \"a.gdl\" (bob)".getBytes(StandardCharsets.UTF_8));
+
+    new GDLHandler.Builder().buildFromFile(a.getPath());
+  }
+
+  @Test
+  public void diamondIncludeTest() throws IOException {
+    File people = folder.newFile("people.gdl");
+    Files.write(people.toPath(),
+      "(alice:Person {name : \"Alice\"})-->()".getBytes(StandardCharsets.UTF_8));
+    File a = folder.newFile("a.gdl");
+    Files.write(a.toPath(), "INCLUDE \"people.gdl\" (bob)".getBytes(StandardCharsets.UTF_8));
+    File b = folder.newFile("b.gdl");
+    Files.write(b.toPath(), "INCLUDE \"people.gdl\" (eve)".getBytes(StandardCharsets.UTF_8));
+    File script = folder.newFile("script.gdl");
+    Files.write(script.toPath(),
+      "INCLUDE \"a.gdl\" INCLUDE \"b.gdl\" INCLUDE \"people.gdl\"".getBytes(StandardCharsets.UTF_8));
+
+    // people.gdl is processed once, although it is included three times
+    GDLHandler handler = new GDLHandler.Builder().buildFromFile(script.getPath());
+    assertEquals("wrong number of vertices", 4, handler.getVertices().size());
+    assertEquals("wrong number of edges", 1, handler.getEdges().size());
+    assertEquals("wrong property", "Alice", handler.getVertex("alice").getProperties().get("name"));
+  }
+
+  @Test
+  public void streamIncludeTest() throws IOException {
+    File people = folder.newFile("people.gdl");
+    Files.write(people.toPath(), "(alice:Person),(bob:Person)".getBytes(StandardCharsets.UTF_8));
+    File script = folder.newFile("script.gdl");
+    Files.write(script.toPath(),
+      "INCLUDE \"people.gdl\" (alice)-[:knows]->(bob)".getBytes(StandardCharsets.UTF_8));
+
+    List<Graph> graphs = new ArrayList<>();
+    List<Vertex> vertices = new ArrayList<>();
+    List<Edge> edges = new ArrayList<>();
+    GDLHandler handler = new GDLHandler.Builder()
+      .streamFromFile(script.getPath(), new CollectingSink(graphs, vertices, edges));
+
+    assertEquals("wrong number of vertices", 2, vertices.size());
+    assertEquals("wrong number of edges", 1, edges.size());
+    assertEquals("wrong source id", handler.getVertex("alice").getId(), edges.get(0).getSourceId());
+  }
+  @Test
+  public void compressedIncludeTest() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+      gzip.write("(alice:Person),(bob:Person)".getBytes(StandardCharsets.UTF_8));
+    }
+    File people = folder.newFile("people.gdl.gz");
+    Files.write(people.toPath(), bytes.toByteArray());
+    File script = folder.newFile("script.gdl");
+    Files.write(script.toPath(),
+      "INCLUDE \"people.gdl.gz\" (alice)-[:knows]->(bob) INCLUDE \"people.gdl.gz\""
+        .getBytes(StandardCharsets.UTF_8));
+
+    GDLHandler handler = new GDLHandler.Builder().buildFromFile(script.getPath());
+    assertEquals("wrong number of vertices", 2, handler.getVertices().size());
+    assertEquals("wrong number of edges", 1, handler.getEdges().size());
+
+    // the second include refers to a file which has been processed and released already
+    List<Vertex> vertices = new ArrayList<>();
+    List<Edge> edges = new ArrayList<>();
+    new GDLHandler.Builder()
+      .streamFromFile(script.getPath(), new CollectingSink(new ArrayList<>(), vertices, edges));
+    assertEquals("wrong number of vertices", 2, vertices.size());
+    assertEquals("wrong number of edges", 1, edges.size());
+  }
+
+
+  @Test
+  public void buildFromTemplateTest() {
+    String script = "g:Community{area:\"Leipzig\"}[(alice:Person)-[e:knows{since:[2014,2015]}]->(bob)]," +
+      "h[(alice)-->(:Person)<-[:knows*1..3]-(bob)],()-->()";
+    GDLHandler.Builder expectedBuilder = new GDLHandler.Builder();
+    GDLHandler.Builder builder = new GDLHandler.Builder();
+    GDLTemplate template = builder.compileTemplate(script);
+
+    // second instantiation draws new ids from the same suppliers
+    for (int i = 0; i < 2; i++) {
+      GDLHandler expected = expectedBuilder.buildFromString(script);
+      GDLHandler handler = builder.buildFromTemplate(template);
+
+      assertEquals("wrong graphs", expected.getGraphs().toString(), handler.getGraphs().toString());
+      assertEquals("wrong vertices", expected.getVertices().toString(), handler.getVertices().toString());
+      assertEquals("wrong edges", expected.getEdges().toString(), handler.getEdges().toString());
+      assertEquals("wrong graph cache",
+        expected.getGraphCache(true, true).toString(), handler.getGraphCache(true, true).toString());
+      assertEquals("wrong vertex cache",
+        expected.getVertexCache(true, true).toString(), handler.getVertexCache(true, true).toString());
+      assertEquals("wrong edge cache",
+        expected.getEdgeCache(true, true).toString(), handler.getEdgeCache(true, true).toString());
+    }
+  }
+
+  @Test
+  public void buildFromTemplateSharedIdSupplierTest() {
+    AtomicLong nextId = new AtomicLong();
+    GDLHandler.Builder builder = new GDLHandler.Builder()
+      .setNextGraphId(nextId::getAndIncrement)
+      .setNextVertexId(nextId::getAndIncrement)
+      .setNextEdgeId(nextId::getAndIncrement);
+    GDLTemplate template = builder.compileTemplate("g[(a)-[e]->(b)],h[(b)-[f]->(c)]");
+    GDLHandler handler = builder.buildFromTemplate(template);
+
+    // graphs are instantiated first, then vertices, then edges
+    assertEquals("wrong id for g", 0L, handler.getGraph("g").getId());
+    assertEquals("wrong id for h", 1L, handler.getGraph("h").getId());
+    assertEquals("wrong id for a", 2L, handler.getVertex("a").getId());
+    assertEquals("wrong id for b", 3L, handler.getVertex("b").getId());
+    assertEquals("wrong id for c", 4L, handler.getVertex("c").getId());
+    assertEquals("wrong id for e", 5L, handler.getEdge("e").getId());
+    assertEquals("wrong id for f", 6L, handler.getEdge("f").getId());
+    assertEquals("wrong source id for f", 3L, handler.getEdge("f").getSourceId());
+    assertEquals("wrong target id for f", 4L, handler.getEdge("f").getTargetId());
+    assertEquals("wrong graph ids for b", 2, handler.getVertex("b").getGraphCount());
+  }
+
+  @Test
+  public void buildFromTemplateQueryTest() {
+    String query = "MATCH (a:Person)-[e]->(:Person) WHERE a.age > 42 AND e.since < 2014";
+    GDLHandler.Builder builder = new GDLHandler.Builder();
+    GDLTemplate template = builder.compileTemplate(query);
+    builder.buildFromTemplate(template);
+    GDLHandler handler = builder.buildFromTemplate(template);
+    AtomicLong nextVertexId = new AtomicLong(2);
+    GDLHandler expected = new GDLHandler.Builder()
+      .setNextVertexId(nextVertexId::getAndIncrement)
+      .buildFromString(query);
+
+    assertEquals("wrong vertex cache",
+      expected.getVertexCache(true, true).toString(), handler.getVertexCache(true, true).toString());
+    assertEquals("wrong predicates",
+      expected.getPredicates().get().toString(), handler.getPredicates().get().toString());
+  }
+
+  @Test
+  public void prepareTest() {
+    GDLHandler.Builder builder = new GDLHandler.Builder();
+    PreparedGDL prepared = builder.prepare("(alice:Person {name : $name, age : $age})-[:knows]->(bob)");
+    assertEquals("wrong parameter names",
+      new HashSet<>(Arrays.asList("name", "age")), prepared.getParameterNames());
+
+    Map<String, Object> parameters = new HashMap<>();
+    parameters.put("name", "Alice");
+    parameters.put("age", 23);
+    GDLHandler handler = prepared.bind(parameters);
+    GDLHandler expected = new GDLHandler.Builder()
+      .buildFromString("(alice:Person {name : \"Alice\", age : 23})-[:knows]->(bob)");
+
+    assertEquals("wrong vertices", expected.getVertices().toString(), handler.getVertices().toString());
+    assertEquals("wrong edges", expected.getEdges().toString(), handler.getEdges().toString());
+    assertEquals("wrong property value",
+      "Alice", handler.getVertexCache().get("alice").getProperties().get("name"));
+
+    parameters.put("name", "Eve");
+    handler = prepared.bind(parameters);
+    assertEquals("wrong number of vertices", 2, handler.getVertices().size());
+    assertEquals("wrong property value",
+      "Eve", handler.getVertexCache().get("alice").getProperties().get("name"));
+    assertEquals("wrong id", 2L, handler.getVertexCache().get("alice").getId());
+  }
+
+  @Test
+  public void prepareQueryTest() {
+    PreparedGDL prepared = new GDLHandler.Builder()
+      .prepare("MATCH (p:Person {city : $city})-->(q) WHERE p.age > $age");
+    Map<String, Object> parameters = new HashMap<>();
+    parameters.put("city", "Leipzig");
+    parameters.put("age", 42);
+    GDLHandler handler = prepared.bind(parameters);
+    GDLHandler expected = new GDLHandler.Builder()
+      .buildFromString("MATCH (p:Person {city : \"Leipzig\"})-->(q) WHERE p.age > 42");
+
+    assertEquals("wrong predicates",
+      expected.getPredicates().get().toString(), handler.getPredicates().get().toString());
+  }
+
+  @Test(expected = UnboundParameterException.class)
+  public void prepareUnboundParameterTest() {
+    new GDLHandler.Builder()
+      .prepare("MATCH (p) WHERE p.age > $age")
+      .bind(Collections.emptyMap());
+  }
+
+  @Test
+  public void prepareCacheTest() {
+    GDLHandler.Builder builder = new GDLHandler.Builder();
+    String script = "(alice {name : $name})";
+    PreparedGDL prepared = builder.prepare(script);
+
+    assertSame("prepared script not cached", prepared, builder.prepare(script));
+    builder.setDefaultVertexLabel("Person");
+    assertNotSame("prepared script cached with other labels", prepared, builder.prepare(script));
+    builder.setPreparedCacheSize(0);
+    assertNotSame("prepared script cached although disabled",
+      builder.prepare(script), builder.prepare(script));
+  }
+
+  @Test
+  public void twoStageParsingTest() throws IOException {
+    String fileName = GDLHandler.class.getResource("/social_network.gdl").getFile();
+    GDLHandler expected = new GDLHandler.Builder().buildFromFile(fileName);
+    GDLHandler.Builder builder = new GDLHandler.Builder().enableTwoStageParsing();
+    GDLHandler handler = builder.buildFromFile(fileName);
+
+    assertEquals("wrong vertices", expected.getVertices().toString(), handler.getVertices().toString());
+    assertEquals("wrong edges", expected.getEdges().toString(), handler.getEdges().toString());
+    assertEquals("wrong number of parses", 1L, builder.getParseStatistics().getParseCount());
+    assertEquals("wrong number of fallbacks", 0L, builder.getParseStatistics().getFallbackCount());
+
+    handler.append("(alice)-->(eve)");
+    assertEquals("wrong number of parses", 2L, handler.getParseStatistics().getParseCount());
+    assertEquals("wrong number of fallbacks", 0L, handler.getParseStatistics().getFallbackCount());
+  }
+
+  @Test
+  public void twoStageParsingFallbackTest() {
+    GDLHandler.Builder builder = new GDLHandler.Builder().enableTwoStageParsing();
+    GDLHandler handler = builder.buildFromString("(alice)-->(bob) (eve");
+
+    assertTrue("vertex not cached", handler.getVertexCache().containsKey("alice"));
+    assertTrue("vertex not cached", handler.getVertexCache().containsKey("bob"));
+    assertEquals("wrong number of fallbacks", 1L, builder.getParseStatistics().getFallbackCount());
+  }
+
+  private static class CollectingSink implements GDLElementSink {
+    private final List<Graph> graphs;
+    private final List<Vertex> vertices;
+    private final List<Edge> edges;
+
+    CollectingSink(List<Graph> graphs, List<Vertex> vertices, List<Edge> edges) {
+      this.graphs = graphs;
+      this.vertices = vertices;
+      this.edges = edges;
+    }
+
+    @Override
+    public void onGraph(Graph graph) {
+      graphs.add(graph);
+    }
+
+    @Override
+    public void onVertex(Vertex vertex) {
+      vertices.add(vertex);
+    }
+
+    @Override
+    public void onEdge(Edge edge) {
+      edges.add(edge);
+    }
+  }
 }
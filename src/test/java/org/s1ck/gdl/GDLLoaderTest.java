@@ -11,6 +11,7 @@ import org.s1ck.gdl.model.Element;
 import org.s1ck.gdl.model.Graph;
 import org.s1ck.gdl.model.GraphElement;
 import org.s1ck.gdl.model.Vertex;
+import org.s1ck.gdl.model.comparables.Parameter;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -499,6 +500,20 @@ public class GDLLoaderTest {
     assertEquals("alice.age > 50", loader.getPredicates().get().toString());
   }
 
+  @Test
+  public void testParameterInWhereClause() {
+    String query = "MATCH (alice)-[r]->(bob {name : $name})" +
+      "WHERE alice.age > $age";
+
+    GDLLoader loader = getLoaderFromGDLString(query);
+    validateCollectionSizes(loader, 0, 2, 1);
+
+    assertEquals("wrong property value",
+      new Parameter("name"), loader.getVertexCache().get("bob").getProperties().get("name"));
+    assertEquals("(alice.age > $age AND bob.name = $name)",
+      loader.getPredicates().get().toString());
+  }
+
   @Test
   public void testNotClause() {
     String query = "MATCH (alice)-[r]->(bob)" +
@@ -643,6 +658,34 @@ public class GDLLoaderTest {
     assertTrue("edge f was not in h", f.getGraphs().contains(h.getId()));
   }
 
+  @Test
+  public void testManyGraphMemberships() {
+    StringBuilder gdl = new StringBuilder("x[(b)] ");
+    for (int i = 0; i < 40; i++) {
+      gdl.append("g").append(i).append("[(a)-[e:knows]->(a)] ");
+    }
+    GDLLoader loader = getLoaderFromGDLString(gdl.toString());
+    Vertex a = loader.getVertexCache().get("a");
+    Vertex b = loader.getVertexCache().get("b");
+    Edge e = loader.getEdgeCache().get("e");
+    Graph x = loader.getGraphCache().get("x");
+
+    assertEquals("vertex a has wrong graph size", 40, a.getGraphCount());
+    assertEquals("edge e has wrong graph size", 40, e.getGraphs().size());
+    for (int i = 0; i < 40; i++) {
+      long graphId = loader.getGraphCache().get("g" + i).getId();
+      assertTrue("vertex a was not in g" + i, a.isInGraph(graphId));
+      assertTrue("edge e was not in g" + i, e.getGraphs().contains(graphId));
+      assertEquals("wrong graph id", graphId, a.getGraphIds()[i]);
+    }
+    assertFalse("vertex a was in x", a.isInGraph(x.getId()));
+    assertTrue("vertex b was not in x", b.isInGraph(x.getId()));
+
+    assertTrue("vertex a was not removed from g0",
+      a.removeFromGraph(loader.getGraphCache().get("g0").getId()));
+    assertEquals("vertex a has wrong graph size", 39, a.getGraphCount());
+  }
+
   // --------------------------------------------------------------------------------------------
   //  Special cases
   // --------------------------------------------------------------------------------------------
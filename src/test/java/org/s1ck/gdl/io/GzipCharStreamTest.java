@@ -0,0 +1,75 @@
+package org.s1ck.gdl.io;
+
+import org.antlr.v4.runtime.IntStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GzipCharStreamTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void readCompressedFileTest() throws IOException {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      content.append("(v").append(i).append(" {name : \"\u00c4\u20ac\u00f6\"})\n");
+    }
+    File file = folder.newFile("compressed.gdl.gz");
+    Files.write(file.toPath(), compress(content.toString()));
+
+    assertTrue("file should be compressed", GzipCharStream.isCompressed(file.getPath()));
+    try (GzipCharStream stream = new GzipCharStream(file.getPath(), StandardCharsets.UTF_8)) {
+      StringBuilder actual = new StringBuilder();
+      while (stream.LA(1) != IntStream.EOF) {
+        actual.append((char) stream.LA(1));
+        stream.consume();
+      }
+      assertEquals("wrong content", content.toString(), actual.toString());
+      assertEquals("wrong source name", file.getPath(), stream.getSourceName());
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void readPlainFileTest() throws IOException {
+    File file = folder.newFile("plain.gdl");
+    Files.write(file.toPath(), "(alice)".getBytes(StandardCharsets.UTF_8));
+
+    new GzipCharStream(file.getPath(), StandardCharsets.UTF_8).close();
+  }
+
+  @Test
+  public void isCompressedTest() throws IOException {
+    InputStream compressed = new ByteArrayInputStream(compress("(alice)"));
+    assertTrue("stream should be compressed", GzipCharStream.isCompressed(compressed));
+    assertEquals("header should not be consumed", 0x1f, compressed.read());
+
+    InputStream plain = new ByteArrayInputStream("(alice)".getBytes(StandardCharsets.UTF_8));
+    assertFalse("stream should not be compressed", GzipCharStream.isCompressed(plain));
+    assertEquals("header should not be consumed", '(', plain.read());
+
+    File file = folder.newFile("plain.gdl");
+    assertFalse("empty file should not be compressed", GzipCharStream.isCompressed(file.getPath()));
+  }
+
+  private static byte[] compress(String content) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+      gzip.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+}
@@ -0,0 +1,54 @@
+package org.s1ck.gdl.io;
+
+import org.antlr.v4.runtime.IntStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+
+public class MappedFileCharStreamTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void readAcrossWindowsTest() throws IOException {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      content.append("(v").append(i).append(" {name : \"\u00c4\u20ac\u00f6\"})\n");
+    }
+    File file = folder.newFile("multibyte.gdl");
+    Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+
+    try (MappedFileCharStream stream = new MappedFileCharStream(
+      file.getPath(), StandardCharsets.UTF_8, MappedFileCharStream.MIN_WINDOW_SIZE + 1)) {
+      StringBuilder actual = new StringBuilder();
+      while (stream.LA(1) != IntStream.EOF) {
+        actual.append((char) stream.LA(1));
+        stream.consume();
+      }
+      assertEquals("wrong content", content.toString(), actual.toString());
+      assertEquals("wrong source name", file.getPath(), stream.getSourceName());
+    }
+  }
+
+  @Test
+  public void readEmptyFileTest() throws IOException {
+    File file = folder.newFile("empty.gdl");
+    try (MappedFileCharStream stream = new MappedFileCharStream(file.getPath())) {
+      assertEquals("stream should be empty", IntStream.EOF, stream.LA(1));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidWindowSizeTest() throws IOException {
+    File file = folder.newFile("small.gdl");
+    new MappedFileCharStream(file.getPath(), StandardCharsets.UTF_8, 1);
+  }
+}
@@ -0,0 +1,134 @@
+package org.s1ck.gdl.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ElementTest {
+  @Test
+  public void propertyViewTest() {
+    Vertex v = new Vertex();
+    v.addProperty("name", "Alice");
+    v.addProperty("age", 23);
+    v.getProperties().put("city", null);
+
+    Map<String, Object> properties = v.getProperties();
+    assertEquals("wrong number of properties", 3, properties.size());
+    assertEquals("wrong property order", Arrays.asList("name", "age", "city"),
+      Arrays.asList(properties.keySet().toArray()));
+    assertTrue("missing property", properties.containsKey("city"));
+    assertNull("property value was not null", properties.get("city"));
+
+    assertEquals("wrong previous value", 23, properties.remove("age"));
+    properties.put("name", "Bob");
+    Map<String, Object> expected = new HashMap<>();
+    expected.put("name", "Bob");
+    expected.put("city", null);
+    assertEquals("wrong properties", expected, v.getProperties());
+
+    Iterator<Map.Entry<String, Object>> iterator = properties.entrySet().iterator();
+    iterator.next().setValue("Eve");
+    iterator.next();
+    iterator.remove();
+    assertFalse("property was not removed", iterator.hasNext());
+    assertEquals("wrong properties", "{name=Eve}", v.getProperties().toString());
+  }
+
+  @Test
+  public void labelViewTest() {
+    SymbolDictionary symbols = new SymbolDictionary();
+    Vertex v = new Vertex(symbols);
+    v.setLabels(Arrays.asList("Person", "User"));
+
+    List<String> labels = v.getLabels();
+    labels.add("Admin");
+    assertEquals("wrong previous label", "User", labels.set(1, "Employee"));
+    assertEquals("wrong labels", Arrays.asList("Person", "Employee", "Admin"), v.getLabels());
+    assertTrue("label was not written through", v.hasLabel(symbols.lookup("Admin")));
+
+    assertEquals("wrong removed label", "Person", labels.remove(0));
+    assertTrue("label was not removed", labels.remove("Admin"));
+    assertEquals("wrong labels", Collections.singletonList("Employee"), v.getLabels());
+    assertEquals("wrong label", "Employee", v.getLabel());
+  }
+
+  @Test
+  public void offHeapPropertiesTest() {
+    OffHeapPropertyStore store = new OffHeapPropertyStore(64);
+    Vertex v = new Vertex();
+    v.addProperty("name", "Alice");
+    v.addProperty("age", 23L);
+    v.addProperty("weight", 1.5);
+    v.addProperty("active", true);
+    v.addProperty("tags", Arrays.asList("a", 42, null));
+    Map<String, Object> expected = new HashMap<>(v.getProperties());
+
+    v.setPropertyStore(store);
+    assertTrue("no memory allocated", store.getAllocatedBytes() > 0);
+    assertEquals("wrong properties", expected, v.getProperties());
+
+    v.getProperties().put("age", 24L);
+    v.getProperties().remove("name");
+    expected.put("age", 24L);
+    expected.remove("name");
+    assertEquals("wrong properties", expected, v.getProperties());
+
+    // unsupported values stay on the heap
+    Object value = new Object();
+    v.addProperty("object", value);
+    assertSame("wrong property value", value, v.getProperties().get("object"));
+  }
+
+  @Test
+  public void sharedShapeTest() {
+    PropertyShape root = new SymbolDictionary().getEmptyShape();
+    PropertyShape shape = root.with("name").with("age");
+    assertSame("shape was not shared", shape, root.with("name").with("age"));
+    assertEquals("wrong slot", 1, shape.indexOf("age"));
+    assertEquals("wrong slot", -1, shape.indexOf("city"));
+    assertSame("shape was not shared", root.with("age"), shape.without(0));
+    assertNotSame("shape was shared across dictionaries",
+      shape, new SymbolDictionary().getEmptyShape().with("name").with("age"));
+  }
+
+  @Test
+  public void shapeLimitTest() {
+    PropertyShape root = new SymbolDictionary().getEmptyShape();
+    for (int i = 1; i < PropertyShape.MAX_SHAPES; i++) {
+      root.with("key" + i);
+    }
+    assertSame("shape was not shared", root.with("key1"), root.with("key1"));
+
+    // the tree is full, new shapes are not interned
+    PropertyShape shape = root.with("name");
+    assertNotSame("shape was interned", shape, root.with("name"));
+    assertEquals("wrong slot", 0, shape.indexOf("name"));
+  }
+
+  @Test
+  public void nullPropertyKeyTest() {
+    Vertex v = new Vertex();
+    v.addProperty(null, "Alice");
+    v.addProperty("age", 23);
+    Map<String, Object> properties = new HashMap<>();
+    properties.put(null, "Alice");
+    properties.put("age", 23);
+    assertEquals("wrong properties", properties, v.getProperties());
+
+    v.setProperties(properties);
+    v.getProperties().remove(null);
+    assertEquals("wrong properties", "{age=23}", v.getProperties().toString());
+  }
+}